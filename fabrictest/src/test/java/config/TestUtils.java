@@ -12,6 +12,9 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.PrivateKey;
 import java.security.Security;
@@ -54,6 +57,20 @@ public class TestUtils {
         sdkProperties.put("hyperledger.fabric.DeployWaitTime", "120000");
         sdkProperties.put("hyperledger.fabric.ProposalWaitTime", "120000");
         sdkProperties.put("hyperledger.fabric.RunIdemixMTTest", "false");
+        //测量背书校验吞吐时并发发出提案的线程数，为0时不测量
+        sdkProperties.put("hyperledger.fabric.VerifyThreads", System.getProperty("hyperledger.fabric.VerifyThreads", "0"));
+        //测量背书校验吞吐时每轮发出的提案数
+        sdkProperties.put("hyperledger.fabric.VerifyProposals", System.getProperty("hyperledger.fabric.VerifyProposals", "200"));
+        //peer连接单条消息的上限（字节）
+        sdkProperties.put("hyperledger.fabric.PeerMaxMessageSize", System.getProperty("hyperledger.fabric.PeerMaxMessageSize", "9000000"));
+        //录制链码操作的文件，为空时不录制
+        sdkProperties.put("hyperledger.fabric.WorkloadCaptureFile", System.getProperty("hyperledger.fabric.WorkloadCaptureFile", ""));
+        //多channel测试的channel名字，逗号分隔，每个channel需要对应的.tx配置文件；为空时不运行
+        sdkProperties.put("hyperledger.fabric.MultiChannelNames", System.getProperty("hyperledger.fabric.MultiChannelNames", ""));
+        //多channel测试中每个channel的并发配额
+        sdkProperties.put("hyperledger.fabric.MultiChannelQuota", System.getProperty("hyperledger.fabric.MultiChannelQuota", "8"));
+        //保存channel快照的目录
+        sdkProperties.put("hyperledger.fabric.ChannelSnapshotDir", System.getProperty("hyperledger.fabric.ChannelSnapshotDir", "target\\channel-snapshots"));
 
         //配置组织org1的mspid
         sdkProperties.put(INTEGRATIONTESTS_ORG + "peerOrg1.mspid", "Org1MSP");
@@ -137,6 +154,72 @@ public class TestUtils {
         }
     }
 
+    //获取等待交易写入账本的时间（毫秒）
+    public int getInvokeWaitTime() {
+        return Integer.parseInt(sdkProperties.getProperty("hyperledger.fabric.InvokeWaitTime"));
+    }
+
+    //获取peer连接单条消息的上限
+    public int getPeerMaxMessageSize() {
+        return Integer.parseInt(sdkProperties.getProperty("hyperledger.fabric.PeerMaxMessageSize"));
+    }
+
+    //获取录制链码操作的文件，没有配置时返回null
+    public String getWorkloadCaptureFile() {
+        String file = sdkProperties.getProperty("hyperledger.fabric.WorkloadCaptureFile");
+        return file.isEmpty() ? null : file;
+    }
+
+    //获取多channel测试的channel名字，没有配置时为空
+    public List<String> getMultiChannelNames() {
+        List<String> names = new ArrayList<>();
+        for (String name : sdkProperties.getProperty("hyperledger.fabric.MultiChannelNames").split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    //获取多channel测试中每个channel的并发配额
+    public int getMultiChannelQuota() {
+        return Integer.parseInt(sdkProperties.getProperty("hyperledger.fabric.MultiChannelQuota"));
+    }
+
+    /**
+     * 组织的peer和orderer连接配置，channel快照只在这些配置不变时使用
+     * 包含每个节点的地址和TLS证书，以及写入peer连接配置的消息大小设置。
+     *
+     * @param testOrg org
+     * @return 按节点名排序的配置文本
+     */
+    public String getEndpointConfig(TestOrg testOrg) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("peerMaxMessageSize ").append(getPeerMaxMessageSize()).append('\n');
+        for (String name : new TreeSet<>(testOrg.getOrdererNames())) {
+            appendEndpoint(sb, "orderer", name, testOrg.getOrdererLocation(name), getOrdererProperties(name));
+        }
+        for (String name : new TreeSet<>(testOrg.getPeerNames())) {
+            appendEndpoint(sb, "peer", name, testOrg.getPeerLocation(name), getPeerProperties(name));
+        }
+        return sb.toString();
+    }
+
+    //获取指定channel的快照目录
+    public Path getChannelSnapshotDir(String channelName) {
+        return Paths.get(sdkProperties.getProperty("hyperledger.fabric.ChannelSnapshotDir"), channelName);
+    }
+
+    //获取测量背书校验吞吐的线程数
+    public int getVerifyThreads() {
+        return Integer.parseInt(sdkProperties.getProperty("hyperledger.fabric.VerifyThreads"));
+    }
+
+    //获取测量背书校验吞吐时每轮的提案数
+    public int getVerifyProposals() {
+        return Integer.parseInt(sdkProperties.getProperty("hyperledger.fabric.VerifyProposals"));
+    }
+
     //获取配置好的组织集合
     public Collection<TestOrg> getTestOrgs() {
         return Collections.unmodifiableCollection(testOrgs.values());
@@ -235,6 +318,11 @@ public class TestUtils {
         return getEndPointProperties("peer",name);
     }
 
+    private static void appendEndpoint(StringBuilder sb, String type, String name, String location, Properties properties) throws IOException {
+        sb.append(type).append(' ').append(name).append(' ').append(location).append('\n');
+        sb.append(new String(Files.readAllBytes(Paths.get(properties.getProperty("pemFile"))), StandardCharsets.UTF_8)).append('\n');
+    }
+
     //例如将orderer.example.com切成example.com
     private String getDomainName(final String name) {
         int dot = name.indexOf(".");
@@ -0,0 +1,91 @@
+package decode;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.peer.ChaincodeEventPackage;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 对比完整protobuf解析和ResponseView读取背书响应的开销
+ * 两种方式都读取状态码、交易id、事件名和payload的摘要。
+ * 运行：mvn test-compile 后执行 org.openjdk.jmh.Main ResponseDecodeBenchmark -prof gc，gc profiler给出每次操作分配的字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseDecodeBenchmark {
+
+    //chaincode返回的payload大小
+    @Param({"64", "4096"})
+    public int payloadSize;
+
+    private ByteString encoded;
+
+    private ResponseDecoder decoder;
+
+    private MessageDigest digest;
+
+    @Setup
+    public void setup() throws Exception {
+        ChaincodeEventPackage.ChaincodeEvent event = ChaincodeEventPackage.ChaincodeEvent.newBuilder()
+                .setChaincodeId("example_cc_go")
+                .setTxId("0c9a4f4a3e9f0b3ad3b6b1d0b6d7e3f1f0c5c7a9e8d2b4a6c8e0f2a4b6c8d0e2")
+                .setEventName("event")
+                .setPayload(ByteString.copyFrom("!", UTF_8))
+                .build();
+        FabricProposalResponse.Response response = FabricProposalResponse.Response.newBuilder()
+                .setStatus(200)
+                .setPayload(ByteString.copyFrom(new byte[payloadSize]))
+                .build();
+        FabricProposal.ChaincodeAction action = FabricProposal.ChaincodeAction.newBuilder()
+                .setResults(ByteString.copyFrom(new byte[256]))
+                .setEvents(event.toByteString())
+                .setResponse(response)
+                .build();
+        encoded = FabricProposalResponse.ProposalResponsePayload.newBuilder()
+                .setProposalHash(ByteString.copyFrom(new byte[32]))
+                .setExtension(action.toByteString())
+                .build()
+                .toByteString();
+
+        decoder = new ResponseDecoder();
+        digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    //当前的方式：逐层解析出完整的protobuf对象
+    @Benchmark
+    public void fullDecode(Blackhole blackhole) throws Exception {
+        FabricProposalResponse.ProposalResponsePayload payload = FabricProposalResponse.ProposalResponsePayload.parseFrom(encoded);
+        FabricProposal.ChaincodeAction action = FabricProposal.ChaincodeAction.parseFrom(payload.getExtension());
+        ChaincodeEventPackage.ChaincodeEvent event = ChaincodeEventPackage.ChaincodeEvent.parseFrom(action.getEvents());
+
+        blackhole.consume(action.getResponse().getStatus());
+        blackhole.consume(event.getTxId());
+        blackhole.consume("event".equals(event.getEventName()));
+        digest.reset();
+        digest.update(action.getResponse().getPayload().asReadOnlyByteBuffer());
+        blackhole.consume(digest.digest());
+    }
+
+    //在ByteString的只读buffer上直接读取字段，不复制
+    @Benchmark
+    public void viewDecode(Blackhole blackhole) {
+        decoder.read(encoded, view -> {
+            blackhole.consume(view.getStatus());
+            blackhole.consume(view.getEventTxId());
+            blackhole.consume(view.eventNameEquals("event"));
+            blackhole.consume(view.payloadHash(digest));
+            return null;
+        });
+    }
+}
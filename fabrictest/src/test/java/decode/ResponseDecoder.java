@@ -0,0 +1,61 @@
+package decode;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * 低分配的背书响应解析
+ * 用每个线程复用的ResponseView直接读取ByteString.asReadOnlyByteBuffer()，不复制payload；
+ * gRPC收到的响应是连续存储的ByteString，只读buffer直接包装原数组，拼接出来的ByteString才会复制一次。
+ * 需要完整的protobuf对象时再调用materialize。
+ * 只处理背书响应：SDK在交给BlockListener之前已经把区块解析成protobuf对象，BlockEvent不提供原始字节，
+ * 区块要用同样的方式读取需要绕过SDK自己接收deliver流，这里没有做。
+ */
+public class ResponseDecoder {
+
+    //每个线程复用一个view
+    private final ThreadLocal<ResponseView> views = ThreadLocal.withInitial(ResponseView::new);
+
+    /**
+     * 读取背书响应
+     *
+     * @param response 背书响应
+     * @param reader   读取view中的字段，返回后view会被复用，不能保留
+     * @return reader的返回值
+     */
+    public <T> T read(ProposalResponse response, Function<ResponseView, T> reader) {
+        return read(response.getProposalResponse().getPayload(), reader);
+    }
+
+    /**
+     * 读取编码后的ProposalResponsePayload
+     *
+     * @param payload 编码后的ProposalResponsePayload
+     * @param reader  读取view中的字段，返回后view会被复用，不能保留
+     * @return reader的返回值
+     */
+    public <T> T read(ByteString payload, Function<ResponseView, T> reader) {
+        return read(payload.asReadOnlyByteBuffer(), reader);
+    }
+
+    /**
+     * 读取buffer中position到limit之间的ProposalResponsePayload，例如从文件或socket读入的堆外buffer
+     *
+     * @param payload 编码后的ProposalResponsePayload，读取期间不能修改
+     * @param reader  读取view中的字段，返回后view会被复用，不能保留
+     * @return reader的返回值
+     */
+    public <T> T read(ByteBuffer payload, Function<ResponseView, T> reader) {
+        return reader.apply(views.get().wrap(payload));
+    }
+
+    //需要完整对象时解析整个ProposalResponsePayload
+    public static FabricProposalResponse.ProposalResponsePayload materialize(ProposalResponse response) throws InvalidProtocolBufferException {
+        return FabricProposalResponse.ProposalResponsePayload.parseFrom(response.getProposalResponse().getPayload());
+    }
+}
@@ -0,0 +1,311 @@
+package decode;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 直接在ByteBuffer上读取ProposalResponsePayload的字段，不生成protobuf对象
+ * wrap时只扫描一遍protobuf编码，记录各字段的位置；字段在读取时才解码，字符串只在需要时生成。
+ * 同一个实例可以反复wrap不同的buffer，解析过程不分配对象。
+ *
+ * ProposalResponsePayload: 1 proposal_hash, 2 extension(ChaincodeAction)
+ * ChaincodeAction: 1 results, 2 events(ChaincodeEvent), 3 response(Response)
+ * Response: 1 status, 2 message, 3 payload
+ * ChaincodeEvent: 1 chaincode_id, 2 tx_id, 3 event_name, 4 payload
+ */
+public class ResponseView {
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private ByteBuffer buffer;
+
+    //读取位置，varint解码时同时前移
+    private int position;
+
+    //各字段的位置和长度，长度为-1表示字段不存在
+    private int proposalHashOffset;
+    private int proposalHashLength;
+    private int resultsOffset;
+    private int resultsLength;
+    private int status;
+    private int messageOffset;
+    private int messageLength;
+    private int payloadOffset;
+    private int payloadLength;
+    private int chaincodeIdOffset;
+    private int chaincodeIdLength;
+    private int txIdOffset;
+    private int txIdLength;
+    private int eventNameOffset;
+    private int eventNameLength;
+    private int eventPayloadOffset;
+    private int eventPayloadLength;
+
+    /**
+     * 读取buffer中position到limit之间的ProposalResponsePayload
+     *
+     * @param buffer 编码后的ProposalResponsePayload，读取期间不能修改
+     * @return this
+     * @throws IllegalArgumentException 编码不合法
+     */
+    public ResponseView wrap(ByteBuffer buffer) {
+        this.buffer = buffer;
+        proposalHashLength = -1;
+        resultsLength = -1;
+        status = 0;
+        messageLength = -1;
+        payloadLength = -1;
+        chaincodeIdLength = -1;
+        txIdLength = -1;
+        eventNameLength = -1;
+        eventPayloadLength = -1;
+
+        position = buffer.position();
+        int end = buffer.limit();
+        while (position < end) {
+            int tag = readTag(end);
+            if (tag >>> 3 == 1 && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                proposalHashLength = readLength(end);
+                proposalHashOffset = position;
+                position += proposalHashLength;
+            } else if (tag >>> 3 == 2 && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                int length = readLength(end);
+                int actionEnd = position + length;
+                readChaincodeAction(actionEnd);
+                position = actionEnd;
+            } else {
+                skip(tag, end);
+            }
+        }
+        return this;
+    }
+
+    //chaincode返回的状态码，没有response时为0
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean hasEvent() {
+        return eventNameLength >= 0;
+    }
+
+    /**
+     * 计算chaincode返回的payload的摘要
+     *
+     * @param digest 摘要算法，调用前会reset
+     * @return 摘要，没有payload时为空内容的摘要
+     */
+    public byte[] payloadHash(MessageDigest digest) {
+        digest.reset();
+        if (payloadLength > 0) {
+            digest.update(slice(payloadOffset, payloadLength));
+        }
+        return digest.digest();
+    }
+
+    //事件名是否等于name，不生成字符串，事件名只能是ASCII
+    public boolean eventNameEquals(String name) {
+        return equalsAscii(eventNameOffset, eventNameLength, name);
+    }
+
+    //事件的交易id，读取时才生成字符串
+    public String getEventTxId() {
+        return string(txIdOffset, txIdLength);
+    }
+
+    public String getEventName() {
+        return string(eventNameOffset, eventNameLength);
+    }
+
+    public String getEventChaincodeId() {
+        return string(chaincodeIdOffset, chaincodeIdLength);
+    }
+
+    public String getMessage() {
+        return string(messageOffset, messageLength);
+    }
+
+    //chaincode返回的payload，只读视图，不复制
+    public ByteBuffer getPayload() {
+        return payloadLength < 0 ? null : slice(payloadOffset, payloadLength);
+    }
+
+    //事件的payload，只读视图，不复制
+    public ByteBuffer getEventPayload() {
+        return eventPayloadLength < 0 ? null : slice(eventPayloadOffset, eventPayloadLength);
+    }
+
+    //读写集，只读视图，不复制
+    public ByteBuffer getResults() {
+        return resultsLength < 0 ? null : slice(resultsOffset, resultsLength);
+    }
+
+    //proposal的摘要，只读视图，不复制
+    public ByteBuffer getProposalHash() {
+        return proposalHashLength < 0 ? null : slice(proposalHashOffset, proposalHashLength);
+    }
+
+    private void readChaincodeAction(int end) {
+        while (position < end) {
+            int tag = readTag(end);
+            int field = tag >>> 3;
+            if ((tag & 7) != WIRE_LENGTH_DELIMITED) {
+                skip(tag, end);
+                continue;
+            }
+            int length = readLength(end);
+            int fieldEnd = position + length;
+            if (1 == field) {
+                resultsOffset = position;
+                resultsLength = length;
+            } else if (2 == field) {
+                readChaincodeEvent(fieldEnd);
+            } else if (3 == field) {
+                readResponse(fieldEnd);
+            }
+            position = fieldEnd;
+        }
+    }
+
+    private void readResponse(int end) {
+        while (position < end) {
+            int tag = readTag(end);
+            int field = tag >>> 3;
+            if (1 == field && (tag & 7) == WIRE_VARINT) {
+                status = (int) readVarint(end);
+            } else if (2 == field && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                messageLength = readLength(end);
+                messageOffset = position;
+                position += messageLength;
+            } else if (3 == field && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                payloadLength = readLength(end);
+                payloadOffset = position;
+                position += payloadLength;
+            } else {
+                skip(tag, end);
+            }
+        }
+    }
+
+    private void readChaincodeEvent(int end) {
+        while (position < end) {
+            int tag = readTag(end);
+            int field = tag >>> 3;
+            if ((tag & 7) != WIRE_LENGTH_DELIMITED) {
+                skip(tag, end);
+                continue;
+            }
+            int length = readLength(end);
+            if (1 == field) {
+                chaincodeIdOffset = position;
+                chaincodeIdLength = length;
+            } else if (2 == field) {
+                txIdOffset = position;
+                txIdLength = length;
+            } else if (3 == field) {
+                eventNameOffset = position;
+                eventNameLength = length;
+            } else if (4 == field) {
+                eventPayloadOffset = position;
+                eventPayloadLength = length;
+            }
+            position += length;
+        }
+        //有事件时事件名至少是空字符串
+        if (eventNameLength < 0) {
+            eventNameOffset = position;
+            eventNameLength = 0;
+        }
+    }
+
+    private int readTag(int end) {
+        long tag = readVarint(end);
+        if (0 == tag >>> 3 || tag > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid protobuf tag " + tag + " at " + position);
+        }
+        return (int) tag;
+    }
+
+    private int readLength(int end) {
+        long length = readVarint(end);
+        if (length < 0 || length > end - position) {
+            throw new IllegalArgumentException("Truncated protobuf field of length " + length + " at " + position);
+        }
+        return (int) length;
+    }
+
+    private long readVarint(int end) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= end) {
+                throw new IllegalArgumentException("Truncated protobuf varint at " + position);
+            }
+            byte b = buffer.get(position++);
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed protobuf varint at " + position);
+    }
+
+    private void skip(int tag, int end) {
+        switch (tag & 7) {
+            case WIRE_VARINT:
+                readVarint(end);
+                break;
+            case WIRE_FIXED64:
+                position += 8;
+                break;
+            case WIRE_LENGTH_DELIMITED:
+                int length = readLength(end);
+                position += length;
+                break;
+            case WIRE_FIXED32:
+                position += 4;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported protobuf wire type " + (tag & 7) + " at " + position);
+        }
+        if (position > end) {
+            throw new IllegalArgumentException("Truncated protobuf field at " + position);
+        }
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer slice = buffer.asReadOnlyBuffer();
+        //转成Buffer调用，编译后在Java 8上也能运行
+        ((Buffer) slice).limit(offset + length);
+        ((Buffer) slice).position(offset);
+        return slice.slice();
+    }
+
+    private String string(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        //在副本上批量读取，不改变buffer的position
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean equalsAscii(int offset, int length, String value) {
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package delta;
+
+import org.hyperledger.fabric.sdk.*;
+
+import javax.json.Json;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
+
+import static java.lang.String.format;
+
+//读取增量账户模型的余额：链码返回基础余额和未合并的增量，在客户端求和
+public class DeltaAccountReader {
+
+    private final HFClient client;
+
+    private final Channel channel;
+
+    private final ChaincodeID chaincodeID;
+
+    public DeltaAccountReader(HFClient client, Channel channel, ChaincodeID chaincodeID) {
+        this.client = client;
+        this.channel = channel;
+        this.chaincodeID = chaincodeID;
+    }
+
+    /**
+     * 查询账户余额
+     *
+     * @param account 账户
+     * @return 基础余额加上所有未合并的增量
+     */
+    public long balance(String account) throws Exception {
+        QueryByChaincodeRequest request = client.newQueryProposalRequest();
+        request.setChaincodeID(chaincodeID);
+        request.setFcn("deltaQuery");
+        request.setArgs(new String[]{account});
+
+        Collection<ProposalResponse> responses = channel.queryByChaincode(request);
+        ProposalResponse response = responses.iterator().next();
+        if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+            throw new IllegalStateException(format("Delta query for %s failed on peer %s: %s", account, response.getPeer().getName(), response.getMessage()));
+        }
+
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(response.getChaincodeActionResponsePayload()))) {
+            return sum(reader.readObject());
+        }
+    }
+
+    //基础余额加上所有增量
+    static long sum(JsonObject balance) {
+        //链码中的余额是64位整数，不能用getInt读取
+        long total = balance.getJsonNumber("base").longValue();
+        for (JsonNumber delta : balance.getJsonArray("deltas").getValuesAs(JsonNumber.class)) {
+            total += delta.longValue();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,127 @@
+package delta;
+
+import invoke.ChaincodeInvoker;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定期合并增量账户
+ * 每个周期从DeltaEventAggregator取出未合并增量达到阈值的账户，逐个调用链码的compact，
+ * 把事件中看到的增量并入基础余额，避免deltaQuery读取的增量越来越多。
+ * compact按key逐个读取交给它的增量，不做范围查询，同一账户并发的credit写入的是其它key，不会让合并失效。
+ * 每次最多合并MAX_DELTAS个增量，其余的下个周期再合并。
+ */
+public class DeltaCompactor {
+
+    //一次compact最多合并的增量个数，限制提案的大小
+    static final int MAX_DELTAS = 500;
+
+    private final ChaincodeInvoker invoker;
+
+    private final DeltaEventAggregator aggregator;
+
+    //触发合并的未合并增量个数
+    private final long threshold;
+
+    //等待compact写入账本的时间
+    private final long commitTimeoutMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    //合并成功的次数
+    private final AtomicLong compactions = new AtomicLong();
+
+    //合并失败的次数
+    private final AtomicLong failures = new AtomicLong();
+
+    //链码实际合并的增量个数
+    private final AtomicLong folded = new AtomicLong();
+
+    public DeltaCompactor(ChaincodeInvoker invoker, DeltaEventAggregator aggregator, long threshold, long commitTimeoutMillis) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive but was " + threshold);
+        }
+        this.invoker = invoker;
+        this.aggregator = aggregator;
+        this.threshold = threshold;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+    }
+
+    /**
+     * 开始定期合并
+     *
+     * @param period 两次检查之间的间隔
+     * @param unit   period的单位
+     */
+    public void start(long period, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(this::compactPending, period, period, unit);
+    }
+
+    //合并所有达到阈值的账户，返回合并成功的账户数
+    public int compactPending() {
+        int compacted = 0;
+        for (Map.Entry<String, List<String>> entry : aggregator.getPendingAtLeast(threshold).entrySet()) {
+            String account = entry.getKey();
+            List<String> deltas = entry.getValue().subList(0, Math.min(MAX_DELTAS, entry.getValue().size()));
+            try {
+                List<String> args = new ArrayList<>(deltas.size() + 1);
+                args.add(account);
+                args.addAll(deltas);
+                Collection<ProposalResponse> responses = invoker.endorse("compact", args.toArray(new String[0]), Collections.singletonList(account), null);
+                long count = foldedCount(responses.iterator().next());
+                invoker.send(responses).get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+
+                //交给compact的增量都已不在账本上，其中count个是这次合并的，其余的之前已经合并过
+                aggregator.compacted(account, deltas);
+                folded.addAndGet(count);
+                compactions.incrementAndGet();
+                compacted++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                //冲突或超时，下个周期重试
+                failures.incrementAndGet();
+                System.out.println("Compact " + account + " failed: " + e.getMessage());
+            }
+        }
+        return compacted;
+    }
+
+    public long getFolded() {
+        return folded.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    //读取compact返回的合并个数
+    private static long foldedCount(ProposalResponse response) throws Exception {
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(response.getChaincodeActionResponsePayload()))) {
+            JsonObject result = reader.readObject();
+            return result.getJsonNumber("folded").longValue();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package delta;
+
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.ChaincodeEvent;
+import org.hyperledger.fabric.sdk.ChaincodeEventListener;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+//汇总链码每个交易发出的deltas事件，得到各账户已提交的增量之和，以及还没有合并的增量
+//增量用"txid~序号"标识，与链码中delta~<account>~<txid>~<n>的后两段相同，合并时交给compact逐个读取
+public class DeltaEventAggregator implements ChaincodeEventListener {
+
+    //账户到增量之和
+    private final Map<String, AtomicLong> totals = new ConcurrentHashMap<>();
+
+    //账户到还没有合并的增量
+    private final Map<String, Set<String>> pending = new ConcurrentHashMap<>();
+
+    //处理过的事件数
+    private final AtomicLong events = new AtomicLong();
+
+    /**
+     * 在channel上注册监听deltas事件
+     *
+     * @param channel       channel
+     * @param chaincodeName 链码名字
+     * @return 监听的handle，用于取消注册
+     */
+    public String register(Channel channel, String chaincodeName) throws InvalidArgumentException {
+        return channel.registerChaincodeEventListener(Pattern.compile(Pattern.quote(chaincodeName)), Pattern.compile(Pattern.quote("deltas")), this);
+    }
+
+    @Override
+    public void received(String handle, BlockEvent blockEvent, ChaincodeEvent chaincodeEvent) {
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(chaincodeEvent.getPayload()))) {
+            int index = 0;
+            for (JsonValue value : reader.readArray()) {
+                JsonObject delta = (JsonObject) value;
+                String account = delta.getString("account");
+                totals.computeIfAbsent(account, key -> new AtomicLong()).addAndGet(delta.getJsonNumber("delta").longValue());
+                pending.computeIfAbsent(account, key -> ConcurrentHashMap.newKeySet()).add(chaincodeEvent.getTxId() + "~" + index);
+                index++;
+            }
+        }
+        events.incrementAndGet();
+    }
+
+    //获取账户已提交的增量之和
+    public long getTotal(String account) {
+        AtomicLong total = totals.get(account);
+        return null == total ? 0 : total.get();
+    }
+
+    /**
+     * 获取未合并的增量达到threshold个的账户
+     *
+     * @param threshold 增量个数
+     * @return 账户到未合并的增量标识
+     */
+    public Map<String, List<String>> getPendingAtLeast(long threshold) {
+        Map<String, List<String>> accounts = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+            List<String> deltas = new ArrayList<>(entry.getValue());
+            if (deltas.size() >= threshold) {
+                accounts.put(entry.getKey(), deltas);
+            }
+        }
+        return accounts;
+    }
+
+    //获取账户未合并的增量个数
+    public int getPendingCount(String account) {
+        Set<String> deltas = pending.get(account);
+        return null == deltas ? 0 : deltas.size();
+    }
+
+    /**
+     * compact提交后移除交给它的增量，它们已经合并，或者之前已经合并过，合并期间新增的增量保留
+     *
+     * @param account 账户
+     * @param deltas  交给compact的增量标识
+     */
+    public void compacted(String account, Collection<String> deltas) {
+        Set<String> current = pending.get(account);
+        if (null != current) {
+            current.removeAll(deltas);
+        }
+    }
+
+    public long getEvents() {
+        return events.get();
+    }
+}
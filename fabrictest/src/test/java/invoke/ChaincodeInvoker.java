@@ -0,0 +1,143 @@
+package invoke;
+
+import measure.PhaseTimer;
+import org.hyperledger.fabric.sdk.*;
+import workload.WorkloadOperation;
+import workload.WorkloadRecorder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 调用链码：向channel上所有peer背书，检查响应后提交到orderer
+ * 设置了WorkloadRecorder时录制每次invoke和query，录制的操作可以用WorkloadReplayer回放。
+ */
+public class ChaincodeInvoker {
+
+    private final HFClient client;
+
+    private final Channel channel;
+
+    private final ChaincodeID chaincodeID;
+
+    //录制调用，为null时不录制
+    private volatile WorkloadRecorder recorder;
+
+    public ChaincodeInvoker(HFClient client, Channel channel, ChaincodeID chaincodeID) {
+        this.client = client;
+        this.channel = channel;
+        this.chaincodeID = chaincodeID;
+    }
+
+    public void setRecorder(WorkloadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 背书一个交易，不提交
+     *
+     * @param fcn          链码函数名
+     * @param args         链码参数
+     * @param keys         交易读写的key，用于录制
+     * @param transientMap transient map，可以为null
+     * @return 所有peer的响应，都已通过SDK的签名校验且状态为成功
+     */
+    public Collection<ProposalResponse> endorse(String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap) throws Exception {
+        record(WorkloadOperation.Type.INVOKE, fcn, args, keys, transientMap);
+
+        TransactionProposalRequest request = client.newTransactionProposalRequest();
+        request.setChaincodeID(chaincodeID);
+        request.setFcn(fcn);
+        request.setArgs(args);
+        if (null != transientMap && !transientMap.isEmpty()) {
+            request.setTransientMap(transientMap);
+        }
+
+        Collection<ProposalResponse> responses = channel.sendTransactionProposal(request, channel.getPeers());
+        Collection<ProposalResponse> successful = new ArrayList<>(responses.size());
+        for (ProposalResponse response : responses) {
+            if (response.isVerified() && response.getStatus() == ProposalResponse.Status.SUCCESS) {
+                successful.add(response);
+            } else {
+                throw new IllegalStateException("Invoke " + fcn + " failed on peer " + response.getPeer().getName() + ": " + response.getMessage());
+            }
+        }
+        return successful;
+    }
+
+    /**
+     * 提交背书过的交易到orderer
+     *
+     * @param responses endorse返回的响应
+     * @return 交易写入账本后完成
+     */
+    public CompletableFuture<BlockEvent.TransactionEvent> send(Collection<ProposalResponse> responses) {
+        return channel.sendTransaction(responses);
+    }
+
+    //背书并提交一个交易，写入账本后完成
+    public CompletableFuture<BlockEvent.TransactionEvent> invoke(String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap) throws Exception {
+        return send(endorse(fcn, args, keys, transientMap));
+    }
+
+    /**
+     * 背书并提交一个交易，记录各阶段结束的时刻
+     *
+     * @param timer 阶段计时，写入账本的时刻由调用者记录
+     * @return 交易写入账本后完成
+     */
+    public CompletableFuture<BlockEvent.TransactionEvent> invoke(String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap,
+                                                                 PhaseTimer timer) throws Exception {
+        Collection<ProposalResponse> responses = endorse(fcn, args, keys, transientMap);
+        timer.endorsed();
+        //sendTransaction在orderer接收交易后返回，返回的future在交易写入账本后完成
+        CompletableFuture<BlockEvent.TransactionEvent> future = send(responses);
+        timer.ordered();
+        return future;
+    }
+
+    /**
+     * 查询链码，不提交
+     *
+     * @param fcn          链码函数名
+     * @param args         链码参数
+     * @param keys         查询读取的key，用于录制
+     * @param transientMap transient map，可以为null
+     * @return 第一个peer返回的payload
+     */
+    public byte[] query(String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap) throws Exception {
+        record(WorkloadOperation.Type.QUERY, fcn, args, keys, transientMap);
+
+        QueryByChaincodeRequest request = client.newQueryProposalRequest();
+        request.setChaincodeID(chaincodeID);
+        request.setFcn(fcn);
+        request.setArgs(args);
+        if (null != transientMap && !transientMap.isEmpty()) {
+            request.setTransientMap(transientMap);
+        }
+
+        byte[] payload = null;
+        for (ProposalResponse response : channel.queryByChaincode(request)) {
+            if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+                throw new IllegalStateException("Query " + fcn + " failed on peer " + response.getPeer().getName() + ": " + response.getMessage());
+            }
+            if (null == payload) {
+                payload = response.getChaincodeActionResponsePayload();
+            }
+        }
+        return payload;
+    }
+
+    private void record(WorkloadOperation.Type type, String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap) {
+        WorkloadRecorder current = recorder;
+        if (null != current) {
+            current.record(type, fcn, args, keys, transientMap);
+        }
+    }
+}
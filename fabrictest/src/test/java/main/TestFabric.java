@@ -1,13 +1,13 @@
 package main;
 
 import config.TestUtils;
+import decode.ResponseDecoder;
 import entity.TestEnrollment;
 import entity.TestOrg;
 import entity.TestUser;
 import org.apache.commons.io.IOUtils;
 import org.hyperledger.fabric.protos.peer.Chaincode;
 import org.hyperledger.fabric.sdk.*;
-import org.hyperledger.fabric.sdk.exception.ChaincodeEndorsementPolicyParseException;
 import org.hyperledger.fabric.sdk.exception.CryptoException;
 import org.hyperledger.fabric.sdk.exception.ProposalException;
 import org.hyperledger.fabric.sdk.security.CryptoSuite;
@@ -19,6 +19,13 @@ import org.hyperledger.fabric_ca.sdk.exception.InfoException;
 import org.hyperledger.fabric_ca.sdk.exception.InvalidArgumentException;
 import org.junit.Before;
 import org.junit.Test;
+import invoke.ChaincodeInvoker;
+import multichannel.MultiChannelManager;
+import snapshot.ChannelSnapshot;
+import snapshot.RestoredChannel;
+import verify.EndorsementThroughput;
+import workload.WorkloadOperation;
+import workload.WorkloadRecorder;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -43,6 +50,9 @@ public class TestFabric {
     //组织信息集合
     private Collection<TestOrg> testOrgs;
 
+    //录制链码操作，没有配置录制文件时为null
+    private WorkloadRecorder workloadRecorder;
+
     //初始化配置信息，为每个配置好的组织设置HFCAClien实例
     @Before
     public void checkConfig() throws MalformedURLException, InvalidArgumentException {
@@ -73,6 +83,12 @@ public class TestFabric {
         enrollUsers(testOrgs);
         //创建channel，peer加入，执行chaincode
         runFabricTest();
+
+        //配置了多channel时测量每个channel的开销
+        List<String> channelNames = testConfig.getMultiChannelNames();
+        if (!channelNames.isEmpty()) {
+            runMultiChannelTest(channelNames, testConfig.getMultiChannelQuota());
+        }
     }
 
     public void runFabricTest() throws Exception {
@@ -85,11 +101,58 @@ public class TestFabric {
         //获取指定name组织
         TestOrg testOrg = testConfig.getTestOrgByName("peerOrg1");
 
-        //创建channel
-        Channel fooChannel = constructChannel("foo", client, testOrg);
+        //有快照且连接配置未变时从快照恢复channel，省去创建channel和peer加入；否则创建channel并保存快照
+        String endpointConfig = testConfig.getEndpointConfig(testOrg);
+        ChannelSnapshot snapshot = new ChannelSnapshot(testConfig.getChannelSnapshotDir("foo"));
+        Channel fooChannel = null;
+        if (snapshot.exists()) {
+            client.setUserContext(testOrg.getPeerAdmin());
+            try {
+                RestoredChannel restoredChannel = snapshot.restore(client, endpointConfig);
+                System.out.println("Restored channel foo at height " + restoredChannel.getHeight() + ", snapshot taken at height " + restoredChannel.getSavedHeight());
+                fooChannel = restoredChannel.getChannel();
+            } catch (IOException e) {
+                System.out.println("Channel snapshot is not usable, constructing channel: " + e.getMessage());
+                snapshot.delete();
+            }
+        }
+        if (null == fooChannel) {
+            fooChannel = constructChannel("foo", client, testOrg);
+            snapshot.save(fooChannel, endpointConfig);
+        }
+
+        //配置了录制文件时录制链码操作
+        String captureFile = testConfig.getWorkloadCaptureFile();
+        if (null != captureFile) {
+            workloadRecorder = new WorkloadRecorder();
+        }
 
         //安装链码，实例化链码，执行链码
         runChannnel(client, fooChannel, true, testOrg, 0);
+
+        if (null != workloadRecorder) {
+            workloadRecorder.save(Paths.get(captureFile));
+            System.out.println("Saved " + workloadRecorder.getOperations().size() + " workload operations to " + captureFile);
+        }
+    }
+
+    /**
+     * 为peerOrg1和peerOrg2创建并加入多个channel
+     *
+     * @param channelNames channel名字，每个channel需要对应的.tx配置文件
+     * @param quota        每个channel的并发配额
+     */
+    public void runMultiChannelTest(Collection<String> channelNames, int quota) throws Exception {
+        List<TestOrg> orgs = Arrays.asList(testConfig.getTestOrgByName("peerOrg1"), testConfig.getTestOrgByName("peerOrg2"));
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        MultiChannelManager manager = new MultiChannelManager(orgs, this::constructChannel, this::joinChannel, quota, processors, processors);
+        try {
+            manager.openAll(channelNames);
+            System.out.println(manager.overheadReport());
+        } finally {
+            manager.shutdown();
+        }
     }
 
     /**
@@ -101,7 +164,7 @@ public class TestFabric {
      * @param testOrg
      * @param delta
      */
-    public void runChannnel(HFClient client, Channel channel, boolean installChaincode, TestOrg testOrg, int delta) throws org.hyperledger.fabric.sdk.exception.InvalidArgumentException, ProposalException, IOException, ChaincodeEndorsementPolicyParseException {
+    public void runChannnel(HFClient client, Channel channel, boolean installChaincode, TestOrg testOrg, int delta) throws Exception {
 
         //Chaincode事件捕获类
         class ChaincodeEventCapture {
@@ -129,10 +192,10 @@ public class TestFabric {
         final ChaincodeID chaincodeID;
         //响应集合
         Collection<ProposalResponse> responses;
-        //成功响应集合
-        Collection<ProposalResponse> successful = new LinkedList<>();
+        //成功响应集合，每个peer一个响应，按peer数预分配
+        Collection<ProposalResponse> successful = new ArrayList<>(channel.getPeers().size());
         //失败响应集合
-        Collection<ProposalResponse> failed = new LinkedList<>();
+        Collection<ProposalResponse> failed = new ArrayList<>(channel.getPeers().size());
 
         //不明，事件监听注册
         String chaincodeEventListenerHandle = channel.registerChaincodeEventListener(Pattern.compile(".*"),
@@ -198,13 +261,18 @@ public class TestFabric {
         instantiateProposalReques.setChaincodeID(chaincodeID);
         instantiateProposalReques.setChaincodeLanguage(TransactionRequest.Type.GO_LANG);
         instantiateProposalReques.setFcn("init");
-        instantiateProposalReques.setArgs(new String[]{"a", "500", "b", "" + (200 + delta)});
+        String[] initArgs = new String[]{"a", "500", "b", "" + (200 + delta)};
+        instantiateProposalReques.setArgs(initArgs);
 
         Map<String, byte[]> tm = new HashMap<>();
         tm.put("HyperLedgerFabric", "InstantiateProposalRequest:JavaSDK".getBytes(UTF_8));
         tm.put("method", "InstantiateProposalRequest".getBytes(UTF_8));
         instantiateProposalReques.setTransientMap(tm);
 
+        if (null != workloadRecorder) {
+            workloadRecorder.record(WorkloadOperation.Type.INSTANTIATE, "init", initArgs, Arrays.asList("a", "b"), tm);
+        }
+
         //背书策略
         ChaincodeEndorsementPolicy chaincodeEndorsementPolicy = new ChaincodeEndorsementPolicy();
         //配置背书策略
@@ -227,6 +295,49 @@ public class TestFabric {
         }
 
         System.out.println("Received " + responses.size() + " instantiate proposal responses. Successful+verified: " + successful.size() + " . Failed: " + failed.size());
+        if (!failed.isEmpty()) {
+            System.out.println("Not enough endorsers for instantiate, skip invoke and query");
+            return;
+        }
+
+        //提交实例化交易，等待写入账本
+        channel.sendTransaction(successful).get(testConfig.getInvokeWaitTime(), TimeUnit.MILLISECONDS);
+        System.out.println("Chaincode instantiated on channel " + channelName);
+
+        //执行链码，配置了录制文件时录制invoke和query
+        ChaincodeInvoker invoker = new ChaincodeInvoker(client, channel, chaincodeID);
+        invoker.setRecorder(workloadRecorder);
+
+        Map<String, byte[]> tm2 = new HashMap<>();
+        tm2.put("HyperLedgerFabric", "TransactionProposalRequest:JavaSDK".getBytes(UTF_8));
+        tm2.put("method", "TransactionProposalRequest".getBytes(UTF_8));
+        tm2.put("result", ":)".getBytes(UTF_8));
+        tm2.put("event", "!".getBytes(UTF_8));
+
+        System.out.println("Sending move 100 from a to b");
+        Collection<ProposalResponse> moveResponses = invoker.endorse("move", new String[]{"a", "b", "100"}, Arrays.asList("a", "b"), tm2);
+
+        //直接在响应字节上读取状态、txid和链码事件，不解析完整的protobuf
+        ResponseDecoder decoder = new ResponseDecoder();
+        for (ProposalResponse response : moveResponses) {
+            String summary = decoder.read(response, view -> format("status: %d, event txid: %s, event: %b",
+                    view.getStatus(), view.getEventTxId(), view.eventNameEquals("event")));
+            System.out.println("Move endorsed by " + response.getPeer().getName() + ", " + summary);
+        }
+
+        BlockEvent.TransactionEvent transactionEvent = invoker.send(moveResponses)
+                .get(testConfig.getInvokeWaitTime(), TimeUnit.MILLISECONDS);
+        System.out.println("Move committed, Txid: " + transactionEvent.getTransactionID() + " valid: " + transactionEvent.isValid());
+
+        byte[] balance = invoker.query("query", new String[]{"b"}, Collections.singletonList("b"), null);
+        System.out.println("Query b: " + new String(balance, UTF_8));
+
+        //配置了线程数时，测量单线程和多线程并发背书时每秒能校验的响应数，背书查询不提交，也不录制
+        if (testConfig.getVerifyThreads() > 0) {
+            EndorsementThroughput throughput = new EndorsementThroughput(new ChaincodeInvoker(client, channel, chaincodeID), "query", new String[]{"b"});
+            System.out.println("Endorsement verification, " + throughput.run(1, testConfig.getVerifyProposals()));
+            System.out.println("Endorsement verification, " + throughput.run(testConfig.getVerifyThreads(), testConfig.getVerifyProposals()));
+        }
     }
 
     /**
@@ -245,16 +356,7 @@ public class TestFabric {
         Collection<Orderer> orderers = new LinkedList<>();
 
         for (String orderName : testOrg.getOrdererNames()) {
-            //获取fabric的orderer配置信息
-            Properties ordererProperties = testConfig.getOrdererProperties(orderName);
-
-            //设置grpc的keepAlive，避免timeout
-            ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveTime", new Object[]{5L, TimeUnit.MINUTES});
-            ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveTimeout", new Object[]{8L, TimeUnit.SECONDS});
-            ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveWithoutCalls", new Object[]{true});
-
-            //调用clien的newOrderer接口，表示一个fabric的orderer。
-            orderers.add(client.newOrderer(orderName, testOrg.getOrdererLocation(orderName), ordererProperties));
+            orderers.add(newOrderer(client, testOrg, orderName));
         }
 
         //选择第一个orderer创建channel
@@ -271,6 +373,56 @@ public class TestFabric {
         System.out.println("Create channel " + name);
 
         //将peer加入到channel中
+        joinPeers(client, newChannel, testOrg);
+
+        //将剩下的orderer加入到channel中
+        for (Orderer orderer : orderers) {
+            newChannel.addOrderer(orderer);
+        }
+
+        return newChannel.initialize();
+    }
+
+    /**
+     * 将组织的peer加入到已经创建的channel中
+     *
+     * @param name    channel名字
+     * @param client  HFClient
+     * @param testOrg org
+     * @return Channel实例
+     */
+    public Channel joinChannel(String name, HFClient client, TestOrg testOrg) throws Exception {
+
+        client.setUserContext(testOrg.getPeerAdmin());
+
+        Channel channel = client.newChannel(name);
+
+        //peer加入时需要从orderer获取channel的创世区块，先添加orderer
+        for (String orderName : testOrg.getOrdererNames()) {
+            channel.addOrderer(newOrderer(client, testOrg, orderName));
+        }
+
+        joinPeers(client, channel, testOrg);
+
+        return channel.initialize();
+    }
+
+    //创建orderer实例
+    private Orderer newOrderer(HFClient client, TestOrg testOrg, String orderName) throws Exception {
+        //获取fabric的orderer配置信息
+        Properties ordererProperties = testConfig.getOrdererProperties(orderName);
+
+        //设置grpc的keepAlive，避免timeout
+        ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveTime", new Object[]{5L, TimeUnit.MINUTES});
+        ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveTimeout", new Object[]{8L, TimeUnit.SECONDS});
+        ordererProperties.put("grpc.NettyChannelBuilderOption.keepAliveWithoutCalls", new Object[]{true});
+
+        //调用clien的newOrderer接口，表示一个fabric的orderer。
+        return client.newOrderer(orderName, testOrg.getOrdererLocation(orderName), ordererProperties);
+    }
+
+    //将组织下所有的peer加入到channel中
+    private void joinPeers(HFClient client, Channel channel, TestOrg testOrg) throws Exception {
         for (String peerName : testOrg.getPeerNames()) {
             //peer的连接地址
             String peerLocation = testOrg.getPeerLocation(peerName);
@@ -280,23 +432,16 @@ public class TestFabric {
                 peerProperties = new Properties();
             }
 
-            peerProperties.put("grpc.NettyChannelBuilderOption.maxInboundMessageSize", 9000000);
+            peerProperties.put("grpc.NettyChannelBuilderOption.maxInboundMessageSize", testConfig.getPeerMaxMessageSize());
 
             //实例化Peer
             Peer peer = client.newPeer(peerName, peerLocation, peerProperties);
 
             //join实例化的peer到channel中，设置peer拥有的角色
-            newChannel.joinPeer(peer, Channel.PeerOptions.createPeerOptions().setPeerRoles(EnumSet.of(Peer.PeerRole.ENDORSING_PEER, Peer.PeerRole.LEDGER_QUERY, Peer.PeerRole.CHAINCODE_QUERY, Peer.PeerRole.EVENT_SOURCE)));
+            channel.joinPeer(peer, Channel.PeerOptions.createPeerOptions().setPeerRoles(EnumSet.of(Peer.PeerRole.ENDORSING_PEER, Peer.PeerRole.LEDGER_QUERY, Peer.PeerRole.CHAINCODE_QUERY, Peer.PeerRole.EVENT_SOURCE)));
 
-            System.out.println("Peer " + peerName + " joined channel " + name);
+            System.out.println("Peer " + peerName + " joined channel " + channel.getName());
         }
-
-        //将剩下的orderer加入到channel中
-        for (Orderer orderer : orderers) {
-            newChannel.addOrderer(orderer);
-        }
-
-        return newChannel.initialize();
     }
 
     /**
@@ -0,0 +1,184 @@
+package measure;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 线程安全的延迟直方图
+ * 小于128纳秒的值精确记录，更大的值每个2的幂区间分成64个桶，相对误差不超过1/64。
+ * 记录时只做一次原子加，不分配对象。
+ */
+public class LatencyHistogram {
+
+    //每个2的幂区间的桶数为2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    //精确记录的值的个数
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+
+    //最大的移位数，对应Long.MAX_VALUE
+    private static final int MAX_SHIFT = 63 - SUB_BUCKET_BITS - 1;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + MAX_SHIFT * SUB_BUCKETS;
+
+    //保存的分位点
+    private static final double[] PERCENTILES = {50, 75, 90, 99, 99.9, 99.99, 100};
+
+    private final String name;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //记录一次延迟，单位纳秒，负数按0记录
+    public void record(long latencyNanos) {
+        counts.incrementAndGet(indexOf(Math.max(0, latencyNanos)));
+    }
+
+    //记录的次数
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * 获取分位点的延迟
+     *
+     * @param percentile 0到100
+     * @return 该分位点所在桶的上界，单位纳秒，没有记录时返回0
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (0 == total) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return highestValueAt(i);
+            }
+        }
+        return highestValueAt(BUCKETS - 1);
+    }
+
+    //合并另一个直方图的记录
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (0 != count) {
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    /**
+     * 保存到文件
+     * 前几行是分位点摘要，方便直接阅读；之后每行是一个非空桶的下界和次数，用于还原直方图。
+     *
+     * @param file 文件路径
+     */
+    public void save(Path file) throws IOException {
+        if (null != file.getParent()) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+            writer.write(format("# histogram %s count %d%n", name, getCount()));
+            for (double percentile : PERCENTILES) {
+                writer.write(format("# p%s %.3f ms%n", percentile, getPercentile(percentile) / 1e6));
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = counts.get(i);
+                if (0 != count) {
+                    writer.write(lowestValueAt(i) + " " + count);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    //从文件还原直方图
+    public static LatencyHistogram load(Path file) throws IOException {
+        LatencyHistogram histogram = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (line.startsWith("# histogram ")) {
+                    histogram = new LatencyHistogram(line.split(" ")[2]);
+                } else if (!line.startsWith("#") && !line.trim().isEmpty()) {
+                    if (null == histogram) {
+                        throw new IOException("Missing histogram header in " + file);
+                    }
+                    String[] fields = line.trim().split(" ");
+                    histogram.counts.addAndGet(indexOf(Long.parseLong(fields[0])), Long.parseLong(fields[1]));
+                }
+            }
+        }
+        if (null == histogram) {
+            throw new IOException("Missing histogram header in " + file);
+        }
+        return histogram;
+    }
+
+    /**
+     * 对比两个直方图的分位点
+     *
+     * @param baseline 基准
+     * @param current  本次
+     * @return 每个分位点的延迟（毫秒）和变化比例
+     */
+    public static String compare(LatencyHistogram baseline, LatencyHistogram current) {
+        StringBuilder sb = new StringBuilder(format("%-10s %12s %12s %8s%n", baseline.getName(), "baseline ms", "current ms", "ratio"));
+        for (double percentile : PERCENTILES) {
+            double before = baseline.getPercentile(percentile) / 1e6;
+            double after = current.getPercentile(percentile) / 1e6;
+            sb.append(format("%-10s %12.3f %12.3f %8.2f%n", "p" + percentile, before, after, before == 0 ? 0 : after / before));
+        }
+        sb.append(format("%-10s %12d %12d%n", "count", baseline.getCount(), current.getCount()));
+        return sb.toString();
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return mantissa << shift;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+}
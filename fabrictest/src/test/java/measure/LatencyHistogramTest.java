@@ -0,0 +1,58 @@
+package measure;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    //每个值都落在自己的桶里，桶的上下界包含该值
+    @Test
+    public void bucketsContainTheirValues() {
+        for (long value : new long[]{0, 1, 127, 128, 129, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowestValueAt(index) <= value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+        }
+    }
+
+    //分位点的相对误差不超过1/64
+    @Test
+    public void percentilesAreAccurate() {
+        LatencyHistogram histogram = new LatencyHistogram("total");
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(50000000, histogram.getPercentile(50), 50000000 / 64.0);
+        assertEquals(99000000, histogram.getPercentile(99), 99000000 / 64.0);
+        assertEquals(100000000, histogram.getPercentile(100), 100000000 / 64.0);
+    }
+
+    //保存后读回的直方图与原来相同
+    @Test
+    public void savesAndLoads() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram("commit");
+        for (long i = 0; i < 1000; i++) {
+            histogram.record(i * i * 37);
+        }
+
+        Path file = Files.createTempFile("commit", ".hist");
+        try {
+            histogram.save(file);
+            LatencyHistogram loaded = LatencyHistogram.load(file);
+
+            assertEquals("commit", loaded.getName());
+            assertEquals(histogram.getCount(), loaded.getCount());
+            for (double percentile : new double[]{10, 50, 90, 99, 100}) {
+                assertEquals(histogram.getPercentile(percentile), loaded.getPercentile(percentile));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package measure;
+
+import java.util.concurrent.CompletableFuture;
+
+//被测量的一次交易
+public interface MeasuredOperation {
+
+    /**
+     * 执行一次交易，在每个阶段结束时调用timer对应的方法
+     *
+     * @param sequence 交易序号，从0开始
+     * @param timer    阶段计时
+     * @return 交易写入账本后完成
+     */
+    CompletableFuture<?> execute(long sequence, PhaseTimer timer) throws Exception;
+}
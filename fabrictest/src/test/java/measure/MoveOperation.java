@@ -0,0 +1,22 @@
+package measure;
+
+import invoke.ChaincodeInvoker;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+//example_cc的move交易，偶数序号从a转到b，奇数序号从b转到a，余额保持不变
+public class MoveOperation implements MeasuredOperation {
+
+    private final ChaincodeInvoker invoker;
+
+    public MoveOperation(ChaincodeInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    @Override
+    public CompletableFuture<?> execute(long sequence, PhaseTimer timer) throws Exception {
+        String[] args = sequence % 2 == 0 ? new String[]{"a", "b", "1"} : new String[]{"b", "a", "1"};
+        return invoker.invoke("move", args, Arrays.asList("a", "b"), null, timer);
+    }
+}
@@ -0,0 +1,229 @@
+package measure;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.String.format;
+
+/**
+ * 开环测量
+ * 每个交易有预定的开始时刻，到点就发出，不等待之前的交易完成，
+ * 所以peer卡顿时后续交易照常发出，卡顿体现在延迟里，而不是被少发的请求掩盖。
+ * 线程都在执行时交易在队列中等待，背书延迟从预定开始时刻算起，包含排队时间，peer卡顿时的积压体现在延迟里。
+ * 只记录实际发生的阶段：没有提交到orderer的操作（例如查询）不计入ordering、commit和total，单独记录在readOnly中。
+ * 失败和超时的交易记录在failed直方图中，延迟从预定开始时刻到失败或超时的时刻。
+ * 每个实例只能运行一次。
+ */
+public class OpenLoopHarness {
+
+    private final MeasuredOperation operation;
+
+    //同时执行交易的线程数，SDK的调用会阻塞，线程都在执行时交易排队等待
+    private final int maxWorkers;
+
+    //预定开始到背书完成
+    private final LatencyHistogram endorsement = new LatencyHistogram("endorsement");
+
+    //背书完成到orderer接收
+    private final LatencyHistogram ordering = new LatencyHistogram("ordering");
+
+    //orderer接收到写入账本
+    private final LatencyHistogram commit = new LatencyHistogram("commit");
+
+    //预定开始到写入账本
+    private final LatencyHistogram total = new LatencyHistogram("total");
+
+    //预定开始到完成，没有提交到orderer的操作
+    private final LatencyHistogram readOnly = new LatencyHistogram("readOnly");
+
+    //预定开始到失败或超时
+    private final LatencyHistogram failed = new LatencyHistogram("failed");
+
+    //执行中的交易，超时时记录它们的延迟
+    private final Map<Long, PhaseTimer> inFlight = new ConcurrentHashMap<>();
+
+    //执行失败的交易数
+    private final AtomicLong failures = new AtomicLong();
+
+    //超时时还没有完成的交易数
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    public OpenLoopHarness(MeasuredOperation operation, int maxWorkers) {
+        if (maxWorkers <= 0) {
+            throw new IllegalArgumentException("Max workers must be positive but was " + maxWorkers);
+        }
+        this.operation = operation;
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * 按固定速率发出count个交易，等待全部完成
+     *
+     * @param opsPerSecond 每秒发出的交易数
+     * @param count        交易总数
+     * @param timeout      发出后等待完成的最长时间
+     * @param unit         timeout的单位
+     * @return 是否所有交易都在超时前完成
+     */
+    public boolean run(double opsPerSecond, int count, long timeout, TimeUnit unit) throws InterruptedException {
+        if (opsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive but was " + opsPerSecond);
+        }
+        double interval = TimeUnit.SECONDS.toNanos(1) / opsPerSecond;
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (long) (i * interval);
+        }
+        return run(offsets, timeout, unit);
+    }
+
+    /**
+     * 按预定时刻发出交易，第i个交易的序号为i，等待全部完成
+     *
+     * @param offsetsNanos 每个交易相对开始时刻的预定发出时间，单位纳秒，不能递减
+     * @param timeout      发出后等待完成的最长时间
+     * @param unit         timeout的单位
+     * @return 是否所有交易都在超时前完成
+     */
+    public boolean run(long[] offsetsNanos, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Open loop harness can only run once");
+        }
+        CountDownLatch done = new CountDownLatch(offsetsNanos.length);
+        //无界队列，预定时刻到了就入队，不丢弃
+        ExecutorService workers = Executors.newFixedThreadPool(maxWorkers);
+
+        try {
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < offsetsNanos.length; i++) {
+                long intendedNanos = startNanos + offsetsNanos[i];
+                long waitNanos = intendedNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                long sequence = i;
+                PhaseTimer timer = new PhaseTimer(intendedNanos);
+                inFlight.put(sequence, timer);
+                workers.execute(() -> execute(sequence, timer, done));
+            }
+            if (done.await(timeout, unit)) {
+                return true;
+            }
+
+            //超时时还在执行的交易按失败记录，之后再完成也不会重复记录
+            for (Map.Entry<Long, PhaseTimer> entry : inFlight.entrySet()) {
+                if (entry.getValue().finish()) {
+                    timeouts.incrementAndGet();
+                    failed.record(System.nanoTime() - entry.getValue().getIntendedStartNanos());
+                }
+            }
+            inFlight.clear();
+            return false;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 保存所有直方图，每个阶段一个文件
+     *
+     * @param directory 保存的目录
+     */
+    public void save(Path directory) throws IOException {
+        for (LatencyHistogram histogram : new LatencyHistogram[]{endorsement, ordering, commit, total, readOnly, failed}) {
+            histogram.save(directory.resolve(histogram.getName() + ".hist"));
+        }
+    }
+
+    public LatencyHistogram getEndorsement() {
+        return endorsement;
+    }
+
+    public LatencyHistogram getOrdering() {
+        return ordering;
+    }
+
+    public LatencyHistogram getCommit() {
+        return commit;
+    }
+
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    public LatencyHistogram getReadOnly() {
+        return readOnly;
+    }
+
+    public LatencyHistogram getFailed() {
+        return failed;
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public String report() {
+        return format("committed %d p50 %.3f ms p99 %.3f ms, read-only %d p99 %.3f ms, failed %d (errors %d, timeouts %d) p99 %.3f ms",
+                total.getCount(), total.getPercentile(50) / 1e6, total.getPercentile(99) / 1e6,
+                readOnly.getCount(), readOnly.getPercentile(99) / 1e6,
+                failed.getCount(), failures.get(), timeouts.get(), failed.getPercentile(99) / 1e6);
+    }
+
+    private void execute(long sequence, PhaseTimer timer, CountDownLatch done) {
+        try {
+            operation.execute(sequence, timer).whenComplete((result, e) -> {
+                if (null == e) {
+                    timer.committed();
+                    if (timer.finish()) {
+                        inFlight.remove(sequence);
+                        record(timer);
+                        done.countDown();
+                    }
+                } else {
+                    failures.incrementAndGet();
+                    fail(sequence, timer, done);
+                }
+            });
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            fail(sequence, timer, done);
+        }
+    }
+
+    private void fail(long sequence, PhaseTimer timer, CountDownLatch done) {
+        if (timer.finish()) {
+            inFlight.remove(sequence);
+            failed.record(System.nanoTime() - timer.getIntendedStartNanos());
+            done.countDown();
+        }
+    }
+
+    private void record(PhaseTimer timer) {
+        //只记录实际发生的阶段，没有标记的阶段不记为0
+        long start = timer.getIntendedStartNanos();
+        long endorsed = timer.getEndorsedNanos();
+        long ordered = timer.getOrderedNanos();
+        if (0 != endorsed) {
+            endorsement.record(endorsed - start);
+        }
+        if (0 == ordered) {
+            readOnly.record(timer.getCommittedNanos() - start);
+            return;
+        }
+        ordering.record(ordered - (0 == endorsed ? start : endorsed));
+        commit.record(timer.getCommittedNanos() - ordered);
+        total.record(timer.getCommittedNanos() - start);
+    }
+}
@@ -0,0 +1,77 @@
+package measure;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OpenLoopHarnessTest {
+
+    //失败和超时的交易记录在failed直方图中，延迟到失败或超时为止
+    @Test
+    public void recordsFailuresAndTimeouts() throws Exception {
+        OpenLoopHarness harness = new OpenLoopHarness((sequence, timer) -> {
+            if (0 == sequence) {
+                timer.endorsed();
+                timer.ordered();
+                return CompletableFuture.completedFuture(null);
+            }
+            if (1 == sequence) {
+                throw new IllegalStateException("endorsement failed");
+            }
+            //永远不会写入账本
+            return new CompletableFuture<>();
+        }, 4);
+
+        assertFalse(harness.run(new long[]{0, 0, 0}, 200, TimeUnit.MILLISECONDS));
+
+        assertEquals(1, harness.getTotal().getCount());
+        assertEquals(2, harness.getFailed().getCount());
+        assertEquals(1, harness.getFailures());
+        assertEquals(1, harness.getTimeouts());
+        assertTrue(harness.getFailed().getPercentile(100) >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    //线程都在执行时交易排队等待，排队时间计入延迟，不丢弃
+    @Test
+    public void queuesWhenWorkersAreBusy() throws Exception {
+        OpenLoopHarness harness = new OpenLoopHarness((sequence, timer) -> {
+            Thread.sleep(100);
+            timer.endorsed();
+            timer.ordered();
+            return CompletableFuture.completedFuture(null);
+        }, 1);
+
+        assertTrue(harness.run(new long[]{0, 0}, 5, TimeUnit.SECONDS));
+
+        assertEquals(2, harness.getTotal().getCount());
+        assertEquals(0, harness.getFailed().getCount());
+        assertTrue(harness.getEndorsement().getPercentile(100) >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    //没有提交到orderer的操作不计入ordering和commit
+    @Test
+    public void recordsReadOnlyOperationsSeparately() throws Exception {
+        OpenLoopHarness harness = new OpenLoopHarness((sequence, timer) -> {
+            Thread.sleep(20);
+            timer.endorsed();
+            if (0 == sequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+            timer.ordered();
+            Thread.sleep(20);
+            return CompletableFuture.completedFuture(null);
+        }, 2);
+
+        assertTrue(harness.run(new long[]{0, 0}, 5, TimeUnit.SECONDS));
+
+        assertEquals(2, harness.getEndorsement().getCount());
+        assertEquals(1, harness.getReadOnly().getCount());
+        assertEquals(1, harness.getOrdering().getCount());
+        assertEquals(1, harness.getCommit().getCount());
+        assertEquals(1, harness.getTotal().getCount());
+        assertTrue(harness.getCommit().getPercentile(0) >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+}
@@ -0,0 +1,59 @@
+package measure;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//记录一次交易各个阶段结束的时刻，所有时刻都用System.nanoTime()
+public class PhaseTimer {
+
+    //预定的开始时刻
+    private final long intendedStartNanos;
+
+    private volatile long endorsedNanos;
+
+    private volatile long orderedNanos;
+
+    private volatile long committedNanos;
+
+    //是否已经记录了结果，完成、失败和超时只记录一个
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    public PhaseTimer(long intendedStartNanos) {
+        this.intendedStartNanos = intendedStartNanos;
+    }
+
+    //背书完成
+    public void endorsed() {
+        endorsedNanos = System.nanoTime();
+    }
+
+    //orderer接收了交易
+    public void ordered() {
+        orderedNanos = System.nanoTime();
+    }
+
+    //交易写入账本
+    public void committed() {
+        committedNanos = System.nanoTime();
+    }
+
+    //第一次调用时返回true
+    boolean finish() {
+        return finished.compareAndSet(false, true);
+    }
+
+    public long getIntendedStartNanos() {
+        return intendedStartNanos;
+    }
+
+    public long getEndorsedNanos() {
+        return endorsedNanos;
+    }
+
+    public long getOrderedNanos() {
+        return orderedNanos;
+    }
+
+    public long getCommittedNanos() {
+        return committedNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package multichannel;
+
+import entity.TestOrg;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.HFClient;
+
+//为组织创建或加入channel
+public interface ChannelFactory {
+
+    /**
+     * 返回初始化好的channel
+     *
+     * @param name    channel名字
+     * @param client  组织使用的HFClient
+     * @param testOrg org
+     * @return Channel实例
+     */
+    Channel open(String name, HFClient client, TestOrg testOrg) throws Exception;
+}
@@ -0,0 +1,161 @@
+package multichannel;
+
+import entity.TestOrg;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.HFClient;
+import org.hyperledger.fabric.sdk.security.CryptoSuite;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.lang.String.format;
+
+/**
+ * 在一个JVM中管理多个组织的多个channel
+ * 第一个组织创建channel，其它组织随后加入；不同channel之间并行创建和加入。
+ * 每个组织只使用一个HFClient，所有channel共用其加密工具和用户身份。
+ * 所有channel的请求共用一个线程池，每个channel按自己的配额使用。
+ */
+public class MultiChannelManager {
+
+    //参与channel的组织，第一个组织负责创建channel
+    private final List<TestOrg> testOrgs;
+
+    //组织名到该组织使用的HFClient
+    private final Map<String, HFClient> clients = new LinkedHashMap<>();
+
+    private final ChannelFactory creator;
+
+    private final ChannelFactory joiner;
+
+    //每个channel的并发配额
+    private final int quota;
+
+    //同时创建和加入的channel数
+    private final int parallelism;
+
+    //执行所有channel请求的线程池
+    private final ExecutorService workers;
+
+    private final Map<String, TenantChannel> channels = new ConcurrentHashMap<>();
+
+    //打开所有channel前后堆内存的差值，两次都在GC之后测量
+    private long heapBytes;
+
+    public MultiChannelManager(List<TestOrg> testOrgs, ChannelFactory creator, ChannelFactory joiner, int quota, int parallelism, int workerThreads) throws Exception {
+        if (testOrgs.isEmpty()) {
+            throw new IllegalArgumentException("At least one org is required");
+        }
+        this.testOrgs = new ArrayList<>(testOrgs);
+        this.creator = creator;
+        this.joiner = joiner;
+        this.quota = quota;
+        this.parallelism = parallelism;
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+
+        for (TestOrg testOrg : testOrgs) {
+            HFClient client = HFClient.createNewInstance();
+            client.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
+            client.setUserContext(testOrg.getPeerAdmin());
+            clients.put(testOrg.getName(), client);
+        }
+    }
+
+    /**
+     * 并行创建并加入所有channel
+     *
+     * @param channelNames channel名字，每个channel需要对应的.tx配置文件
+     * @return 打开的channel
+     */
+    public Collection<TenantChannel> openAll(Collection<String> channelNames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        long heapBefore = usedHeapAfterGc();
+
+        try {
+            List<Future<TenantChannel>> futures = new ArrayList<>();
+            for (String channelName : channelNames) {
+                futures.add(executor.submit(() -> open(channelName)));
+            }
+            List<TenantChannel> opened = new ArrayList<>();
+            for (Future<TenantChannel> future : futures) {
+                try {
+                    opened.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            heapBytes = usedHeapAfterGc() - heapBefore;
+            return opened;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //获取指定名字的channel
+    public TenantChannel getChannel(String name) {
+        return channels.get(name);
+    }
+
+    //获取组织使用的HFClient
+    public HFClient getClient(String orgName) {
+        return clients.get(orgName);
+    }
+
+    //每个channel的开销
+    public String overheadReport() {
+        if (channels.isEmpty()) {
+            return "No channels opened";
+        }
+        long totalSetupNanos = 0;
+        long maxSetupNanos = 0;
+        for (TenantChannel channel : channels.values()) {
+            totalSetupNanos += channel.getSetupNanos();
+            maxSetupNanos = Math.max(maxSetupNanos, channel.getSetupNanos());
+        }
+        return format("%d channels for %d orgs, setup avg %.1f ms max %.1f ms, live heap after GC %d KB per channel",
+                channels.size(), testOrgs.size(), totalSetupNanos / 1e6 / channels.size(), maxSetupNanos / 1e6,
+                heapBytes / 1024 / channels.size());
+    }
+
+    public void shutdown() {
+        for (TenantChannel channel : channels.values()) {
+            channel.shutdown();
+        }
+        channels.clear();
+        workers.shutdown();
+    }
+
+    //第一个组织创建channel，其它组织加入
+    private TenantChannel open(String channelName) throws Exception {
+        long start = System.nanoTime();
+        Map<String, Channel> orgChannels = new LinkedHashMap<>();
+        for (TestOrg testOrg : testOrgs) {
+            HFClient client = clients.get(testOrg.getName());
+            ChannelFactory factory = orgChannels.isEmpty() ? creator : joiner;
+            orgChannels.put(testOrg.getName(), factory.open(channelName, client, testOrg));
+        }
+
+        TenantChannel channel = new TenantChannel(channelName, orgChannels, clients, workers, quota, System.nanoTime() - start);
+        channels.put(channelName, channel);
+        System.out.println(format("Opened channel %s for %s in %.1f ms", channelName, orgChannels.keySet(), channel.getSetupNanos() / 1e6));
+        return channel;
+    }
+
+    //反复GC直到堆用量不再下降，只统计存活的对象，不受尚未回收的垃圾影响
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            Thread.sleep(50);
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,194 @@
+package multichannel;
+
+import invoke.ChaincodeInvoker;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.ChaincodeID;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.HFClient;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个租户的channel
+ * 每个组织在channel上有各自的Channel实例。请求经invoke、query或submit进入租户自己的队列，
+ * 同时执行的请求不超过配额，超出配额的请求在队列中等待，不占用共享线程池的线程，忙碌的租户不会占满其它租户的资源。
+ * 直接使用getChannel返回的Channel实例发出的请求不受配额限制。
+ */
+public class TenantChannel {
+
+    private final String name;
+
+    //组织名到Channel实例
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+
+    //组织名到该组织使用的HFClient
+    private final Map<String, HFClient> clients;
+
+    //所有租户共用的线程池
+    private final Executor executor;
+
+    //并发配额
+    private final int quota;
+
+    //创建和加入channel的耗时
+    private final long setupNanos;
+
+    //等待配额的请求，按提交顺序执行
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+
+    //正在执行的请求数，受pending的锁保护
+    private int running;
+
+    //因配额用完而排队的请求数
+    private final AtomicLong throttled = new AtomicLong();
+
+    TenantChannel(String name, Map<String, Channel> channels, Map<String, HFClient> clients, Executor executor, int quota, long setupNanos) {
+        if (quota <= 0) {
+            throw new IllegalArgumentException("Quota must be positive but was " + quota);
+        }
+        this.name = name;
+        this.channels.putAll(channels);
+        this.clients = clients;
+        this.executor = executor;
+        this.quota = quota;
+        this.setupNanos = setupNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //获取组织在该channel上的Channel实例
+    public Channel getChannel(String orgName) {
+        return channels.get(orgName);
+    }
+
+    public Map<String, Channel> getChannels() {
+        return Collections.unmodifiableMap(channels);
+    }
+
+    public long getSetupNanos() {
+        return setupNanos;
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    //正在执行的请求数
+    public int getInFlight() {
+        synchronized (pending) {
+            return running;
+        }
+    }
+
+    //等待配额的请求数
+    public int getQueued() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 以组织的身份在配额内背书并提交交易
+     *
+     * @param orgName     组织名
+     * @param chaincodeID 链码
+     * @param fcn         链码函数名
+     * @param args        链码参数
+     * @param keys        交易读写的key
+     * @return 交易写入账本后完成
+     */
+    public CompletableFuture<BlockEvent.TransactionEvent> invoke(String orgName, ChaincodeID chaincodeID, String fcn, String[] args, Collection<String> keys) {
+        return submit(() -> invoker(orgName, chaincodeID).invoke(fcn, args, keys, null));
+    }
+
+    /**
+     * 以组织的身份在配额内查询链码
+     *
+     * @return 第一个peer返回的payload
+     */
+    public CompletableFuture<byte[]> query(String orgName, ChaincodeID chaincodeID, String fcn, String[] args, Collection<String> keys) {
+        return submit(() -> CompletableFuture.completedFuture(invoker(orgName, chaincodeID).query(fcn, args, keys, null)));
+    }
+
+    /**
+     * 在配额内执行请求，配额用完时排进租户自己的队列
+     * task在共享线程池中执行，返回的future完成后才释放配额，等待交易提交时不占用线程。
+     *
+     * @param task 请求，返回请求完成时完成的future
+     * @return 请求的结果
+     */
+    public <T> CompletableFuture<T> submit(Callable<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> dispatch(task, result);
+        synchronized (pending) {
+            if (running >= quota) {
+                throttled.incrementAndGet();
+                pending.addLast(start);
+                return result;
+            }
+            running++;
+        }
+        start.run();
+        return result;
+    }
+
+    public void shutdown() {
+        for (Channel channel : channels.values()) {
+            channel.shutdown(true);
+        }
+    }
+
+    private ChaincodeInvoker invoker(String orgName, ChaincodeID chaincodeID) {
+        Channel channel = channels.get(orgName);
+        if (null == channel) {
+            throw new IllegalArgumentException("Org " + orgName + " has not joined channel " + name);
+        }
+        return new ChaincodeInvoker(clients.get(orgName), channel, chaincodeID);
+    }
+
+    private <T> void dispatch(Callable<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        try {
+            executor.execute(() -> run(task, result));
+        } catch (RejectedExecutionException e) {
+            release();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private <T> void run(Callable<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = task.call();
+        } catch (Exception e) {
+            release();
+            result.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((value, e) -> {
+            release();
+            if (null == e) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    //释放配额，有等待的请求时直接交给它
+    private void release() {
+        Runnable next;
+        synchronized (pending) {
+            next = pending.pollFirst();
+            if (null == next) {
+                running--;
+            }
+        }
+        if (null != next) {
+            next.run();
+        }
+    }
+}
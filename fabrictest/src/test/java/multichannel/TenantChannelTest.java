@@ -0,0 +1,70 @@
+package multichannel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TenantChannelTest {
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    //超出配额的请求在租户自己的队列中等待，前面的请求完成后才执行
+    @Test
+    public void queuesRequestsBeyondQuota() throws Exception {
+        TenantChannel tenant = new TenantChannel("busy", Collections.emptyMap(), Collections.emptyMap(), workers, 2, 0);
+
+        List<CompletableFuture<String>> commits = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<String> commit = new CompletableFuture<>();
+            commits.add(commit);
+            results.add(tenant.submit(() -> commit));
+        }
+
+        assertEquals(2, tenant.getInFlight());
+        assertEquals(3, tenant.getQueued());
+        assertEquals(3, tenant.getThrottled());
+
+        commits.get(0).complete("0");
+        assertEquals("0", results.get(0).get(1, TimeUnit.SECONDS));
+        assertEquals(2, tenant.getQueued());
+
+        for (int i = 1; i < 5; i++) {
+            commits.get(i).complete(String.valueOf(i));
+        }
+        for (int i = 1; i < 5; i++) {
+            assertEquals(String.valueOf(i), results.get(i).get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(0, tenant.getInFlight());
+    }
+
+    //一个租户用满配额时，另一个租户的请求不需要等待它
+    @Test
+    public void busyTenantDoesNotBlockOthers() throws Exception {
+        TenantChannel busy = new TenantChannel("busy", Collections.emptyMap(), Collections.emptyMap(), workers, 1, 0);
+        TenantChannel idle = new TenantChannel("idle", Collections.emptyMap(), Collections.emptyMap(), workers, 1, 0);
+
+        CompletableFuture<String> stuck = new CompletableFuture<>();
+        for (int i = 0; i < 10; i++) {
+            busy.submit(() -> stuck);
+        }
+
+        assertEquals("done", idle.submit(() -> CompletableFuture.completedFuture("done")).get(1, TimeUnit.SECONDS));
+        assertEquals(9, busy.getQueued());
+        stuck.complete("released");
+    }
+}
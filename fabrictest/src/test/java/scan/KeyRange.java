@@ -0,0 +1,51 @@
+package scan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//左闭右开的key范围，空字符串表示不限
+public class KeyRange {
+
+    private final String startKey;
+
+    private final String endKey;
+
+    public KeyRange(String startKey, String endKey) {
+        this.startKey = null == startKey ? "" : startKey;
+        this.endKey = null == endKey ? "" : endKey;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public String getEndKey() {
+        return endKey;
+    }
+
+    /**
+     * 按key的首字符把整个key空间切成多个分片
+     *
+     * @param boundaries 分片边界，按字典序升序排列，例如"0123456789abcdefghijklmnopqrstuvwxyz"
+     * @return 覆盖整个key空间的分片，第一个分片从最小key开始，最后一个分片到最大key结束
+     */
+    public static List<KeyRange> splitByFirstCharacter(String boundaries) {
+        List<KeyRange> ranges = new ArrayList<>(boundaries.length() + 1);
+        String start = "";
+        for (int i = 0; i < boundaries.length(); i++) {
+            String end = String.valueOf(boundaries.charAt(i));
+            if (end.compareTo(start) <= 0) {
+                throw new IllegalArgumentException("Boundaries must be in ascending order: " + boundaries);
+            }
+            ranges.add(new KeyRange(start, end));
+            start = end;
+        }
+        ranges.add(new KeyRange(start, ""));
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + startKey + ", " + endKey + ")";
+    }
+}
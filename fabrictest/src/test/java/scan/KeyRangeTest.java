@@ -0,0 +1,60 @@
+package scan;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyRangeTest {
+
+    //分片首尾相接，从最小key开始，到最大key结束
+    @Test
+    public void splitsCoverWholeKeySpace() {
+        List<KeyRange> ranges = KeyRange.splitByFirstCharacter("0Ma");
+
+        assertEquals(4, ranges.size());
+        assertEquals("", ranges.get(0).getStartKey());
+        assertEquals("", ranges.get(ranges.size() - 1).getEndKey());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getEndKey(), ranges.get(i).getStartKey());
+        }
+        assertEquals("[0, M)", ranges.get(1).toString());
+
+        //每个key恰好落在一个分片中
+        for (String key : new String[]{"", "+", "0", "5x", "M", "Z", "a", "zz"}) {
+            int matches = 0;
+            for (KeyRange range : ranges) {
+                boolean afterStart = key.compareTo(range.getStartKey()) >= 0;
+                boolean beforeEnd = range.getEndKey().isEmpty() || key.compareTo(range.getEndKey()) < 0;
+                if (afterStart && beforeEnd) {
+                    matches++;
+                }
+            }
+            assertEquals("Shards containing " + key, 1, matches);
+        }
+    }
+
+    //没有边界时只有一个覆盖全部key的分片
+    @Test
+    public void noBoundariesGivesSingleRange() {
+        List<KeyRange> ranges = KeyRange.splitByFirstCharacter("");
+
+        assertEquals(1, ranges.size());
+        assertEquals("", ranges.get(0).getStartKey());
+        assertEquals("", ranges.get(0).getEndKey());
+    }
+
+    //边界不是严格升序时拒绝
+    @Test
+    public void rejectsUnorderedBoundaries() {
+        for (String boundaries : new String[]{"ba", "aa", "0za"}) {
+            try {
+                KeyRange.splitByFirstCharacter(boundaries);
+                fail("Expected boundaries " + boundaries + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(boundaries));
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package scan;
+
+//链码中一个key的状态
+public class StateRecord {
+
+    private final String key;
+
+    private final String value;
+
+    public StateRecord(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + value;
+    }
+}
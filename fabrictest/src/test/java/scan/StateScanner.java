@@ -0,0 +1,167 @@
+package scan;
+
+import org.hyperledger.fabric.sdk.*;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.lang.String.format;
+
+/**
+ * 分片并行扫描链码状态
+ * 每个分片通过链码的rangeQuery分页查询，分片之间并行；每个分片固定查询一个peer，分片之间轮流分配peer，
+ * 同一分片的各页来自同一个账本，bookmark不会跨peer使用。
+ * 查询结果经过固定容量的队列交给调用线程，队列满时查询线程等待，内存占用有上限。
+ * 任一分片失败时取消其它分片，scan抛出第一个失败。
+ * 扫描到的是账户的基础余额，credit和moveDelta写入但尚未compact的增量不包含在内，需要时用DeltaAccountReader读取。
+ */
+public class StateScanner {
+
+    //分片结束标记
+    private static final StateRecord END = new StateRecord(null, null);
+
+    private final HFClient client;
+
+    private final Channel channel;
+
+    private final ChaincodeID chaincodeID;
+
+    //可以查询的peer
+    private final List<Peer> peers;
+
+    //每页的记录数
+    private final int pageSize;
+
+    //同时查询的分片数
+    private final int parallelism;
+
+    //队列中最多缓存的记录数
+    private final int queueCapacity;
+
+    //轮流为分片分配peer
+    private final AtomicInteger nextPeer = new AtomicInteger();
+
+    public StateScanner(HFClient client, Channel channel, ChaincodeID chaincodeID, Collection<Peer> peers, int pageSize, int parallelism, int queueCapacity) {
+        if (peers.isEmpty()) {
+            throw new IllegalArgumentException("At least one peer is required to scan channel " + channel.getName());
+        }
+        if (pageSize <= 0 || parallelism <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException(format("Page size, parallelism and queue capacity must be positive but were %d, %d, %d",
+                    pageSize, parallelism, queueCapacity));
+        }
+        this.client = client;
+        this.channel = channel;
+        this.chaincodeID = chaincodeID;
+        this.peers = new ArrayList<>(peers);
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 扫描所有分片，在调用线程上把每条记录交给consumer
+     *
+     * @param shards   key分片
+     * @param consumer 记录处理者
+     * @return 扫描到的记录数
+     */
+    public long scan(List<KeyRange> shards, Consumer<StateRecord> consumer) throws Exception {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required to scan channel " + channel.getName());
+        }
+        BlockingQueue<StateRecord> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()));
+
+        try {
+            for (KeyRange shard : shards) {
+                Peer peer = peers.get(Math.floorMod(nextPeer.getAndIncrement(), peers.size()));
+                executor.execute(() -> {
+                    try {
+                        scanShard(shard, peer, queue);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    try {
+                        queue.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            long count = 0;
+            int finished = 0;
+            while (finished < shards.size()) {
+                StateRecord record = queue.take();
+                if (null != failure.get()) {
+                    //有分片失败，不再等待其它分片，由finally中断它们
+                    throw failure.get();
+                }
+                if (END == record) {
+                    finished++;
+                } else {
+                    consumer.accept(record);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //分页查询一个分片，直到没有下一页
+    private void scanShard(KeyRange shard, Peer peer, BlockingQueue<StateRecord> queue) throws Exception {
+        String bookmark = "";
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Scan of " + shard + " cancelled");
+            }
+            JsonObject page = queryPage(shard, peer, bookmark);
+            for (JsonValue value : page.getJsonArray("records")) {
+                JsonObject record = (JsonObject) value;
+                queue.put(new StateRecord(record.getString("key"), record.getString("value")));
+            }
+
+            //最后一页的记录数少于pageSize
+            String next = page.getString("bookmark", "");
+            if (page.getInt("count", 0) < pageSize || next.isEmpty() || next.equals(bookmark)) {
+                return;
+            }
+            bookmark = next;
+        }
+    }
+
+    //向分片所属的peer查询一页数据
+    private JsonObject queryPage(KeyRange shard, Peer peer, String bookmark) throws Exception {
+        QueryByChaincodeRequest request = client.newQueryProposalRequest();
+        request.setChaincodeID(chaincodeID);
+        request.setFcn("rangeQuery");
+        request.setArgs(new String[]{shard.getStartKey(), shard.getEndKey(), String.valueOf(pageSize), bookmark});
+
+        Collection<ProposalResponse> responses = channel.queryByChaincode(request, Collections.singleton(peer));
+        ProposalResponse response = responses.iterator().next();
+        if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+            throw new IllegalStateException(format("Range query %s failed on peer %s: %s", shard, peer.getName(), response.getMessage()));
+        }
+
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(response.getChaincodeActionResponsePayload()))) {
+            return reader.readObject();
+        }
+    }
+}
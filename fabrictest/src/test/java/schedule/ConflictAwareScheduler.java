@@ -0,0 +1,234 @@
+package schedule;
+
+import org.hyperledger.fabric.protos.peer.TransactionPackage;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.exception.TransactionEventException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 感知写冲突的交易调度器
+ * 每个key有一个等待队列，交易提交时同时排进它所有key的队列，在每个队列都排到队首后才交给线程池执行，
+ * 等待中的交易不占用线程，热点key上排队的交易不会挡住不相关的交易。
+ * 所有队列在同一把锁下按提交顺序排队，不会出现两个交易互相等待。
+ * 交易因MVCC冲突失败时，释放key，按带随机抖动的指数退避后重新排队。
+ */
+public class ConflictAwareScheduler {
+
+    //执行交易的线程池，只执行已经拿到所有key的交易
+    private final ExecutorService executor;
+
+    //等待退避结束的交易
+    private final ScheduledExecutorService backoffTimer;
+
+    //每个key的等待队列，队首的交易占用该key；队列为空时删除
+    private final Map<String, ArrayDeque<Job>> keyQueues = new HashMap<>();
+
+    //每个key等待的次数
+    private final Map<String, AtomicLong> waits = new ConcurrentHashMap<>();
+
+    //每个key发生冲突的次数
+    private final Map<String, AtomicLong> conflicts = new ConcurrentHashMap<>();
+
+    //判断失败是否可以重试
+    private final Predicate<Throwable> retryable;
+
+    //最多重试次数
+    private final int maxRetries;
+
+    //第一次重试前的退避时间
+    private final long baseBackoffMillis;
+
+    //退避时间上限
+    private final long maxBackoffMillis;
+
+    //排队中的一个交易
+    private static class Job {
+
+        private final List<String> keys;
+
+        private final TransactionTask task;
+
+        private final CompletableFuture<BlockEvent.TransactionEvent> result = new CompletableFuture<>();
+
+        //还没有排到队首的key数
+        private int blockedKeys;
+
+        private int attempt;
+
+        Job(List<String> keys, TransactionTask task) {
+            this.keys = keys;
+            this.task = task;
+        }
+    }
+
+    public ConflictAwareScheduler(int parallelism, int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this(parallelism, maxRetries, baseBackoffMillis, maxBackoffMillis, ConflictAwareScheduler::isReadConflict);
+    }
+
+    public ConflictAwareScheduler(int parallelism, int maxRetries, long baseBackoffMillis, long maxBackoffMillis, Predicate<Throwable> retryable) {
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.backoffTimer = Executors.newSingleThreadScheduledExecutor();
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryable = retryable;
+    }
+
+    /**
+     * 提交一个交易
+     *
+     * @param writeKeys 交易会写的key，例如move的两个账户
+     * @param task      交易
+     * @return 交易最终提交成功或者失败后完成
+     */
+    public CompletableFuture<BlockEvent.TransactionEvent> submit(Collection<String> writeKeys, TransactionTask task) {
+        Job job = new Job(new ArrayList<>(new TreeSet<>(writeKeys)), task);
+        enqueue(job);
+        return job.result;
+    }
+
+    /**
+     * 获取冲突最多的key
+     *
+     * @param limit 返回的个数
+     * @return 按冲突次数和等待次数降序排列
+     */
+    public List<KeyContention> hottestKeys(int limit) {
+        Set<String> keys = new HashSet<>(waits.keySet());
+        keys.addAll(conflicts.keySet());
+        return keys.stream()
+                .map(key -> new KeyContention(key, count(waits, key), count(conflicts, key)))
+                .sorted(Comparator.comparingLong(KeyContention::getConflicts)
+                        .thenComparingLong(KeyContention::getWaits)
+                        .reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    //当前有交易占用或等待的key数
+    public synchronized int getQueuedKeys() {
+        return keyQueues.size();
+    }
+
+    //关闭调度器，不再接受新的交易
+    public void shutdown() {
+        backoffTimer.shutdown();
+        executor.shutdown();
+    }
+
+    //排进所有key的队列，所有key都空闲时直接执行
+    private void enqueue(Job job) {
+        synchronized (this) {
+            job.blockedKeys = 0;
+            for (String key : job.keys) {
+                ArrayDeque<Job> queue = keyQueues.computeIfAbsent(key, k -> new ArrayDeque<>());
+                queue.addLast(job);
+                if (queue.size() > 1) {
+                    job.blockedKeys++;
+                    waits.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            if (job.blockedKeys > 0) {
+                return;
+            }
+        }
+        start(job);
+    }
+
+    //释放交易占用的key，把因此可以执行的交易交给线程池
+    private void release(Job job) {
+        List<Job> runnable = new ArrayList<>();
+        synchronized (this) {
+            for (String key : job.keys) {
+                ArrayDeque<Job> queue = keyQueues.get(key);
+                queue.pollFirst();
+                Job next = queue.peekFirst();
+                if (null == next) {
+                    keyQueues.remove(key);
+                } else if (0 == --next.blockedKeys) {
+                    runnable.add(next);
+                }
+            }
+        }
+        for (Job next : runnable) {
+            start(next);
+        }
+    }
+
+    private void start(Job job) {
+        try {
+            executor.execute(() -> execute(job));
+        } catch (RejectedExecutionException e) {
+            release(job);
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    //执行一次交易，不在线程池中等待交易提交
+    private void execute(Job job) {
+        CompletableFuture<BlockEvent.TransactionEvent> future;
+        try {
+            future = job.task.execute();
+        } catch (Exception e) {
+            finish(job, null, e);
+            return;
+        }
+        future.whenComplete((event, e) -> finish(job, event, e));
+    }
+
+    private void finish(Job job, BlockEvent.TransactionEvent event, Throwable failure) {
+        release(job);
+        if (null == failure) {
+            job.result.complete(event);
+            return;
+        }
+
+        Throwable cause = (failure instanceof CompletionException || failure instanceof ExecutionException) && null != failure.getCause()
+                ? failure.getCause() : failure;
+        if (job.attempt >= maxRetries || !retryable.test(cause)) {
+            job.result.completeExceptionally(cause);
+            return;
+        }
+        for (String key : job.keys) {
+            conflicts.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        //指数退避，等待时间在[0, min(max, base * 2^attempt)]之间随机，退避期间不占用key和线程
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(job.attempt, 20));
+        job.attempt++;
+        try {
+            backoffTimer.schedule(() -> enqueue(job), ThreadLocalRandom.current().nextLong(ceiling + 1), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            job.result.completeExceptionally(cause);
+        }
+    }
+
+    private static long count(Map<String, AtomicLong> counts, String key) {
+        AtomicLong count = counts.get(key);
+        return null == count ? 0 : count.get();
+    }
+
+    /**
+     * 判断交易是否因为读写冲突被peer判为无效
+     *
+     * @param throwable 交易失败的原因
+     * @return MVCC_READ_CONFLICT或者PHANTOM_READ_CONFLICT时返回true
+     */
+    public static boolean isReadConflict(Throwable throwable) {
+        if (!(throwable instanceof TransactionEventException)) {
+            return false;
+        }
+        BlockEvent.TransactionEvent transactionEvent = ((TransactionEventException) throwable).getTransactionEvent();
+        if (null == transactionEvent) {
+            return false;
+        }
+        int code = transactionEvent.getValidationCode();
+        return code == TransactionPackage.TxValidationCode.MVCC_READ_CONFLICT_VALUE
+                || code == TransactionPackage.TxValidationCode.PHANTOM_READ_CONFLICT_VALUE;
+    }
+}
@@ -0,0 +1,143 @@
+package schedule;
+
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConflictAwareSchedulerTest {
+
+    //测试用的冲突异常
+    private static class ConflictException extends RuntimeException {
+    }
+
+    private final ConflictAwareScheduler scheduler = new ConflictAwareScheduler(8, 3, 1, 5, e -> e instanceof ConflictException);
+
+    @After
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    //写同一个key的交易不能同时执行
+    @Test
+    public void serializesTransactionsOnTheSameKey() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(scheduler.submit(Arrays.asList("a", "b"), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertEquals(1, maxRunning.get());
+        List<KeyContention> hottest = scheduler.hottestKeys(2);
+        assertEquals(2, hottest.size());
+        assertTrue(hottest.get(0).getWaits() > 0);
+        assertEquals(hottest.get(0).getWaits(), hottest.get(1).getWaits());
+        assertEquals(0, scheduler.getQueuedKeys());
+    }
+
+    //热点key上排队的交易不占用线程，不相关的交易不需要等它们
+    @Test
+    public void queuedTransactionsDoNotBlockOtherKeys() throws Exception {
+        CountDownLatch coldDone = new CountDownLatch(1);
+        AtomicBoolean coldRanFirst = new AtomicBoolean();
+
+        //第一个热点交易一直占用key，直到不相关的交易完成
+        List<CompletableFuture<?>> hot = new ArrayList<>();
+        hot.add(scheduler.submit(Collections.singleton("hot"), () -> {
+            coldRanFirst.set(coldDone.await(2, TimeUnit.SECONDS));
+            return CompletableFuture.completedFuture(null);
+        }));
+        for (int i = 0; i < 16; i++) {
+            hot.add(scheduler.submit(Collections.singleton("hot"), () -> CompletableFuture.completedFuture(null)));
+        }
+        scheduler.submit(Collections.singleton("cold"), () -> {
+            coldDone.countDown();
+            return CompletableFuture.completedFuture(null);
+        }).get();
+        CompletableFuture.allOf(hot.toArray(new CompletableFuture[0])).get();
+
+        assertTrue(coldRanFirst.get());
+        assertEquals(0, scheduler.getQueuedKeys());
+    }
+
+    //不相关的交易可以同时执行
+    @Test
+    public void runsIndependentTransactionsInParallel() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(scheduler.submit(Collections.singleton("key" + i), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(scheduler.hottestKeys(10).isEmpty());
+    }
+
+    //冲突的交易重试后成功，并记录冲突的key
+    @Test
+    public void retriesConflicts() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        scheduler.submit(Arrays.asList("b", "a"), () -> {
+            CompletableFuture<BlockEvent.TransactionEvent> future = new CompletableFuture<>();
+            if (attempts.incrementAndGet() < 3) {
+                future.completeExceptionally(new ConflictException());
+            } else {
+                future.complete(null);
+            }
+            return future;
+        }).get();
+
+        assertEquals(3, attempts.get());
+        assertEquals(2, scheduler.hottestKeys(10).size());
+        assertEquals(2, scheduler.hottestKeys(10).get(0).getConflicts());
+    }
+
+    //超过重试次数后失败
+    @Test
+    public void givesUpAfterMaxRetries() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            scheduler.submit(Collections.singleton("a"), () -> {
+                attempts.incrementAndGet();
+                CompletableFuture<BlockEvent.TransactionEvent> future = new CompletableFuture<>();
+                future.completeExceptionally(new ConflictException());
+                return future;
+            }).get();
+            fail("Expected the transaction to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConflictException);
+        }
+
+        assertEquals(4, attempts.get());
+    }
+}
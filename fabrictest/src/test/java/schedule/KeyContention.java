@@ -0,0 +1,36 @@
+package schedule;
+
+//一个key的冲突统计
+public class KeyContention {
+
+    private final String key;
+
+    //等待其它交易释放该key的次数
+    private final long waits;
+
+    //在该key上发生MVCC冲突的次数
+    private final long conflicts;
+
+    public KeyContention(String key, long waits, long conflicts) {
+        this.key = key;
+        this.waits = waits;
+        this.conflicts = conflicts;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getWaits() {
+        return waits;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    @Override
+    public String toString() {
+        return key + "{waits=" + waits + ", conflicts=" + conflicts + '}';
+    }
+}
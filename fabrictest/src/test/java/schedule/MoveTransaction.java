@@ -0,0 +1,42 @@
+package schedule;
+
+import invoke.ChaincodeInvoker;
+import org.hyperledger.fabric.sdk.BlockEvent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//example_cc的move交易，从账户from转amount到账户to
+public class MoveTransaction implements TransactionTask {
+
+    private final ChaincodeInvoker invoker;
+
+    private final String from;
+
+    private final String to;
+
+    private final int amount;
+
+    public MoveTransaction(ChaincodeInvoker invoker, String from, String to, int amount) {
+        this.invoker = invoker;
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+    }
+
+    //交易会写的key
+    public List<String> getWriteKeys() {
+        return Arrays.asList(from, to);
+    }
+
+    @Override
+    public CompletableFuture<BlockEvent.TransactionEvent> execute() throws Exception {
+        return invoker.invoke("move", new String[]{from, to, String.valueOf(amount)}, getWriteKeys(), null);
+    }
+
+    @Override
+    public String toString() {
+        return "move " + from + " -> " + to + " " + amount;
+    }
+}
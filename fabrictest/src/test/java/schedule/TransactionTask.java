@@ -0,0 +1,16 @@
+package schedule;
+
+import org.hyperledger.fabric.sdk.BlockEvent;
+
+import java.util.concurrent.CompletableFuture;
+
+//一次交易：背书并提交到orderer，返回交易提交的结果
+public interface TransactionTask {
+
+    /**
+     * 执行交易，每次重试都会重新调用
+     *
+     * @return 交易提交到账本后完成
+     */
+    CompletableFuture<BlockEvent.TransactionEvent> execute() throws Exception;
+}
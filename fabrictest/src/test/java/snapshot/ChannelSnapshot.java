@@ -0,0 +1,165 @@
+package snapshot;
+
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.HFClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * channel状态快照，保存在本地目录中
+ * channel.bin为SDK序列化的channel（peer、orderer及其连接配置），
+ * config.block为channel配置（包含各组织MSP的根证书），snapshot.properties记录区块高度、
+ * 保存时的peer和orderer连接配置的摘要以及两个文件的SHA-256。
+ * 恢复时省去的只是创建channel和peer加入channel这两步；initialize仍然要完整执行，耗时与新建channel时相同。
+ */
+public class ChannelSnapshot {
+
+    private static final String CHANNEL_FILE = "channel.bin";
+
+    private static final String CONFIG_FILE = "config.block";
+
+    private static final String PROPERTIES_FILE = "snapshot.properties";
+
+    private final Path directory;
+
+    public ChannelSnapshot(Path directory) {
+        this.directory = directory;
+    }
+
+    //快照是否存在
+    public boolean exists() {
+        return Files.exists(directory.resolve(PROPERTIES_FILE));
+    }
+
+    //删除快照
+    public void delete() throws IOException {
+        //先删摘要，删到一半中断时剩下的文件不会被当作快照
+        for (String file : new String[]{PROPERTIES_FILE, CHANNEL_FILE, CONFIG_FILE}) {
+            Files.deleteIfExists(directory.resolve(file));
+        }
+    }
+
+    /**
+     * 保存初始化好的channel
+     *
+     * @param channel        已经initialize的channel
+     * @param endpointConfig 当前的peer和orderer连接配置，恢复时必须相同
+     */
+    public void save(Channel channel, String endpointConfig) throws Exception {
+        save(channel, channel.getChannelConfigurationBytes(), endpointConfig);
+    }
+
+    /**
+     * 从快照恢复channel并initialize，peer和orderer不需要重新加入
+     * 快照不可用时抛出IOException，包括连接配置变化、文件摘要不符、反序列化或initialize失败（例如channel已不存在），
+     * 以及账本高度低于快照时的高度（网络已重建），已经反序列化的channel会被关闭；
+     * channel配置变化时更新快照。
+     *
+     * @param client         HFClient，需要已经设置加密工具和用户
+     * @param endpointConfig 当前的peer和orderer连接配置
+     * @return 初始化完成的channel
+     */
+    public RestoredChannel restore(HFClient client, String endpointConfig) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(PROPERTIES_FILE))) {
+            properties.load(in);
+        }
+
+        if (!sha256(endpointConfig.getBytes(UTF_8)).equals(properties.getProperty("endpoints"))) {
+            throw new IOException(format("Snapshot in %s was saved with different peer or orderer settings", directory));
+        }
+        byte[] channelBytes = readVerified(CHANNEL_FILE, properties);
+        byte[] configBytes = readVerified(CONFIG_FILE, properties);
+
+        Channel channel;
+        long savedHeight;
+        try {
+            savedHeight = Long.parseLong(properties.getProperty("height"));
+            channel = client.deSerializeChannel(channelBytes);
+        } catch (Exception e) {
+            throw new IOException(format("Snapshot in %s could not be deserialized: %s", directory, e.getMessage()), e);
+        }
+
+        try {
+            if (!channel.getName().equals(properties.getProperty("name"))) {
+                throw new IOException(format("Snapshot in %s is for channel %s but contains %s", directory, properties.getProperty("name"), channel.getName()));
+            }
+
+            channel.initialize();
+            long height = channel.queryBlockchainInfo().getHeight();
+            if (height < savedHeight) {
+                throw new IOException(format("Channel %s is at height %d but the snapshot in %s was taken at %d, the network was rebuilt",
+                        channel.getName(), height, directory, savedHeight));
+            }
+
+            //与peer上的最新配置比较，配置变化时更新快照
+            byte[] latest = channel.getChannelConfigurationBytes();
+            boolean configChanged = !Arrays.equals(latest, configBytes);
+            if (configChanged) {
+                System.out.println("Channel " + channel.getName() + " configuration changed since snapshot, refreshing it");
+                save(channel, latest, endpointConfig);
+            }
+            return new RestoredChannel(channel, savedHeight, height, configChanged);
+        } catch (Exception e) {
+            //快照不可用，关闭反序列化出的channel，让调用者可以用同样的名字重新创建
+            channel.shutdown(true);
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException(format("Channel %s restored from %s could not be initialized: %s", channel.getName(), directory, e.getMessage()), e);
+        }
+    }
+
+    private void save(Channel channel, byte[] configBytes, String endpointConfig) throws Exception {
+        Files.createDirectories(directory);
+        byte[] channelBytes = channel.serializeChannel();
+
+        Properties properties = new Properties();
+        properties.setProperty("name", channel.getName());
+        properties.setProperty("height", String.valueOf(channel.queryBlockchainInfo().getHeight()));
+        properties.setProperty("savedAt", String.valueOf(System.currentTimeMillis()));
+        properties.setProperty("endpoints", sha256(endpointConfig.getBytes(UTF_8)));
+        properties.setProperty(CHANNEL_FILE, sha256(channelBytes));
+        properties.setProperty(CONFIG_FILE, sha256(configBytes));
+
+        Files.write(directory.resolve(CHANNEL_FILE), channelBytes);
+        Files.write(directory.resolve(CONFIG_FILE), configBytes);
+        //最后写摘要，写到一半中断时快照校验失败而不会被误用
+        try (OutputStream out = Files.newOutputStream(directory.resolve(PROPERTIES_FILE))) {
+            properties.store(out, "channel snapshot");
+        }
+    }
+
+    //读取文件并校验摘要
+    private byte[] readVerified(String file, Properties properties) throws IOException {
+        byte[] bytes = Files.readAllBytes(directory.resolve(file));
+        String expected = properties.getProperty(file);
+        if (null == expected || !expected.equals(sha256(bytes))) {
+            throw new IOException(format("Snapshot file %s in %s does not match its digest", file, directory));
+        }
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                sb.append(format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+}
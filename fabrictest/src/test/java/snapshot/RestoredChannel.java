@@ -0,0 +1,42 @@
+package snapshot;
+
+import org.hyperledger.fabric.sdk.Channel;
+
+//从快照恢复的channel
+public class RestoredChannel {
+
+    private final Channel channel;
+
+    //保存快照时的区块高度
+    private final long savedHeight;
+
+    //恢复时的区块高度
+    private final long height;
+
+    //channel配置是否在快照之后变化过，变化时快照已更新
+    private final boolean configChanged;
+
+    RestoredChannel(Channel channel, long savedHeight, long height, boolean configChanged) {
+        this.channel = channel;
+        this.savedHeight = savedHeight;
+        this.height = height;
+        this.configChanged = configChanged;
+    }
+
+    //已经initialize的channel
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public long getSavedHeight() {
+        return savedHeight;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public boolean isConfigChanged() {
+        return configChanged;
+    }
+}
@@ -0,0 +1,113 @@
+package verify;
+
+import invoke.ChaincodeInvoker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * 测量每秒能处理的背书响应数
+ * SDK在发出提案的线程上逐个校验返回的背书签名，单个调用无法把校验分到多个核上，
+ * 所以这里用多个线程同时发出背书提案（只背书查询，不提交），各线程上的SDK校验并行执行。
+ * 每个响应都经过SDK的完整校验，没有额外的校验和证书缓存；SDK每次都重新解析背书者证书，没有可以挂接缓存的地方。
+ * 背书者都是X.509身份，Idemix身份的校验没有覆盖。
+ */
+public class EndorsementThroughput {
+
+    private final ChaincodeInvoker invoker;
+
+    //背书的链码函数和参数，应当是只读的查询
+    private final String fcn;
+
+    private final String[] args;
+
+    public EndorsementThroughput(ChaincodeInvoker invoker, String fcn, String[] args) {
+        this.invoker = invoker;
+        this.fcn = fcn;
+        this.args = args;
+    }
+
+    /**
+     * 用threads个线程共发出proposals个背书提案，等待全部完成
+     *
+     * @param threads   同时发出提案的线程数
+     * @param proposals 提案总数
+     * @return 测量结果
+     */
+    public Result run(int threads, int proposals) throws InterruptedException {
+        if (threads <= 0 || proposals <= 0) {
+            throw new IllegalArgumentException(format("Threads and proposals must be positive but were %d, %d", threads, proposals));
+        }
+        AtomicLong responses = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(proposals);
+            for (int i = 0; i < proposals; i++) {
+                tasks.add(() -> {
+                    try {
+                        //endorse只接受SDK校验通过且状态成功的响应
+                        responses.addAndGet(invoker.endorse(fcn, args, Collections.emptyList(), null).size());
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            executor.invokeAll(tasks);
+            return new Result(threads, responses.get(), failures.get(), System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //一次测量的结果
+    public static class Result {
+
+        private final int threads;
+
+        //校验通过的响应数
+        private final long responses;
+
+        //失败的提案数
+        private final long failures;
+
+        private final long elapsedNanos;
+
+        Result(int threads, long responses, long failures, long elapsedNanos) {
+            this.threads = threads;
+            this.responses = responses;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getResponses() {
+            return responses;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        //每秒校验通过的响应数
+        public double getThroughput() {
+            return 0 == elapsedNanos ? 0 : responses * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return format("%d threads: %d verified responses, %d failed proposals, %.0f responses per second",
+                    threads, responses, failures, getThroughput());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package workload;
+
+import invoke.ChaincodeInvoker;
+import measure.PhaseTimer;
+
+import java.util.concurrent.CompletableFuture;
+
+//在真实的channel上回放操作
+public class ChannelWorkloadTarget implements WorkloadTarget {
+
+    //回放时不设置recorder，避免回放的操作再被录制
+    private final ChaincodeInvoker invoker;
+
+    public ChannelWorkloadTarget(ChaincodeInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    @Override
+    public CompletableFuture<?> execute(WorkloadOperation operation, PhaseTimer timer) throws Exception {
+        String[] args = operation.getArgs().toArray(new String[0]);
+        switch (operation.getType()) {
+            case QUERY:
+                byte[] payload = invoker.query(operation.getFcn(), args, operation.getKeys(), operation.getTransientMap());
+                timer.endorsed();
+                return CompletableFuture.completedFuture(payload);
+            case INVOKE:
+                return invoker.invoke(operation.getFcn(), args, operation.getKeys(), operation.getTransientMap(), timer);
+            default:
+                //链码已经实例化，实例化操作不再回放
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+}
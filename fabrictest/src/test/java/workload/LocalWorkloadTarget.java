@@ -0,0 +1,77 @@
+package workload;
+
+import measure.PhaseTimer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 本地替身网络，在内存中执行example_cc的逻辑
+ * 查询在endorseMillis后返回，交易在endorseMillis + commitMillis后完成，用来在没有fabric网络时检验回放本身。
+ */
+public class LocalWorkloadTarget implements WorkloadTarget {
+
+    //账户余额
+    private final Map<String, Integer> state = new ConcurrentHashMap<>();
+
+    //模拟的背书耗时
+    private final long endorseMillis;
+
+    //模拟的排序和提交耗时
+    private final long commitMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    public LocalWorkloadTarget(long endorseMillis, long commitMillis) {
+        this.endorseMillis = endorseMillis;
+        this.commitMillis = commitMillis;
+    }
+
+    @Override
+    public CompletableFuture<?> execute(WorkloadOperation operation, PhaseTimer timer) {
+        apply(operation);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            timer.endorsed();
+            if (operation.getType() == WorkloadOperation.Type.QUERY) {
+                future.complete(null);
+                return;
+            }
+            //本地没有单独的排序阶段，背书完成即视为orderer已接收
+            timer.ordered();
+            scheduler.schedule(() -> future.complete(null), commitMillis, TimeUnit.MILLISECONDS);
+        }, endorseMillis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    //获取账户余额
+    public Integer getBalance(String account) {
+        return state.get(account);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    //与example_cc相同的状态变化
+    private synchronized void apply(WorkloadOperation operation) {
+        List<String> args = operation.getArgs();
+        switch (operation.getFcn()) {
+            case "init":
+                state.put(args.get(0), Integer.parseInt(args.get(1)));
+                state.put(args.get(2), Integer.parseInt(args.get(3)));
+                break;
+            case "move":
+                int amount = Integer.parseInt(args.get(2));
+                state.merge(args.get(0), -amount, Integer::sum);
+                state.merge(args.get(1), amount, Integer::sum);
+                break;
+            case "delete":
+                state.remove(args.get(0));
+                break;
+            default:
+                break;
+        }
+    }
+}
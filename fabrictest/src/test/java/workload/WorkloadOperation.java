@@ -0,0 +1,113 @@
+package workload;
+
+import javax.json.*;
+import java.util.*;
+
+//录制下来的一次链码操作
+public class WorkloadOperation {
+
+    //操作类型
+    public enum Type {
+        INSTANTIATE, INVOKE, QUERY
+    }
+
+    //相对于开始录制的时间，单位纳秒
+    private final long offsetNanos;
+
+    private final Type type;
+
+    //链码函数名
+    private final String fcn;
+
+    //链码参数
+    private final List<String> args;
+
+    //操作读写的key
+    private final List<String> keys;
+
+    //transient map
+    private final Map<String, byte[]> transientMap;
+
+    public WorkloadOperation(long offsetNanos, Type type, String fcn, List<String> args, List<String> keys, Map<String, byte[]> transientMap) {
+        this.offsetNanos = offsetNanos;
+        this.type = type;
+        this.fcn = fcn;
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.transientMap = null == transientMap ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(transientMap));
+    }
+
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getFcn() {
+        return fcn;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public Map<String, byte[]> getTransientMap() {
+        return transientMap;
+    }
+
+    //转换成一行json，transient map的值用base64编码
+    public JsonObject toJson() {
+        JsonArrayBuilder argsBuilder = Json.createArrayBuilder();
+        args.forEach(argsBuilder::add);
+        JsonArrayBuilder keysBuilder = Json.createArrayBuilder();
+        keys.forEach(keysBuilder::add);
+        JsonObjectBuilder transientBuilder = Json.createObjectBuilder();
+        transientMap.forEach((key, value) -> transientBuilder.add(key, Base64.getEncoder().encodeToString(value)));
+
+        return Json.createObjectBuilder()
+                .add("offsetNanos", offsetNanos)
+                .add("type", type.name())
+                .add("fcn", fcn)
+                .add("args", argsBuilder)
+                .add("keys", keysBuilder)
+                .add("transient", transientBuilder)
+                .build();
+    }
+
+    //从一行json还原
+    public static WorkloadOperation fromJson(JsonObject json) {
+        List<String> args = new ArrayList<>();
+        for (JsonString arg : json.getJsonArray("args").getValuesAs(JsonString.class)) {
+            args.add(arg.getString());
+        }
+        List<String> keys = new ArrayList<>();
+        for (JsonString key : json.getJsonArray("keys").getValuesAs(JsonString.class)) {
+            keys.add(key.getString());
+        }
+        Map<String, byte[]> transientMap = new HashMap<>();
+        for (Map.Entry<String, JsonValue> entry : json.getJsonObject("transient").entrySet()) {
+            transientMap.put(entry.getKey(), Base64.getDecoder().decode(((JsonString) entry.getValue()).getString()));
+        }
+
+        return new WorkloadOperation(json.getJsonNumber("offsetNanos").longValue(), Type.valueOf(json.getString("type")),
+                json.getString("fcn"), args, keys, transientMap);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadOperation{" +
+                "offsetNanos=" + offsetNanos +
+                ", type=" + type +
+                ", fcn='" + fcn + '\'' +
+                ", args=" + args +
+                ", keys=" + keys +
+                ", transientMap=" + transientMap.keySet() +
+                '}';
+    }
+}
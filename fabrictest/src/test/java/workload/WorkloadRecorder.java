@@ -0,0 +1,77 @@
+package workload;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+//录制链码操作，每个操作保存为文件中的一行json
+public class WorkloadRecorder {
+
+    //开始录制的时间
+    private final long startNanos = System.nanoTime();
+
+    private final List<WorkloadOperation> operations = new ArrayList<>();
+
+    /**
+     * 录制一次操作，时间为调用时刻
+     *
+     * @param type         操作类型
+     * @param fcn          链码函数名
+     * @param args         链码参数
+     * @param keys         操作读写的key
+     * @param transientMap transient map，可以为null
+     */
+    public void record(WorkloadOperation.Type type, String fcn, String[] args, Collection<String> keys, Map<String, byte[]> transientMap) {
+        WorkloadOperation operation = new WorkloadOperation(System.nanoTime() - startNanos, type, fcn,
+                Arrays.asList(args), new ArrayList<>(keys), transientMap);
+        synchronized (operations) {
+            operations.add(operation);
+        }
+    }
+
+    //获取已录制的操作，按时间排序
+    public List<WorkloadOperation> getOperations() {
+        List<WorkloadOperation> copy;
+        synchronized (operations) {
+            copy = new ArrayList<>(operations);
+        }
+        copy.sort(Comparator.comparingLong(WorkloadOperation::getOffsetNanos));
+        return copy;
+    }
+
+    //保存到文件
+    public void save(Path file) throws IOException {
+        if (null != file.getParent()) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+            for (WorkloadOperation operation : getOperations()) {
+                writer.write(operation.toJson().toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    //从文件读取录制的操作
+    public static List<WorkloadOperation> load(Path file) throws IOException {
+        List<WorkloadOperation> operations = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+                    operations.add(WorkloadOperation.fromJson(jsonReader.readObject()));
+                }
+            }
+        }
+        operations.sort(Comparator.comparingLong(WorkloadOperation::getOffsetNanos));
+        return operations;
+    }
+}
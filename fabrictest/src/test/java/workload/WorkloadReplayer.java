@@ -0,0 +1,68 @@
+package workload;
+
+import measure.OpenLoopHarness;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回放录制的操作
+ * 操作由OpenLoopHarness按预定时刻发出，不等待前面的操作完成；延迟从预定时刻开始计算，
+ * 网络变慢时延迟如实变大，而不是推迟后续操作的发送。
+ */
+public class WorkloadReplayer {
+
+    private final WorkloadTarget target;
+
+    //执行操作的最大线程数
+    private final int maxWorkers;
+
+    public WorkloadReplayer(WorkloadTarget target, int maxWorkers) {
+        if (maxWorkers <= 0) {
+            throw new IllegalArgumentException("Max workers must be positive but was " + maxWorkers);
+        }
+        this.target = target;
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * 按录制时的时间间隔回放
+     *
+     * @param operations 录制的操作
+     * @param speed      回放速度，1为原速，2为两倍速
+     * @param timeout    发出后等待完成的最长时间
+     * @param unit       timeout的单位
+     * @return 各阶段的延迟分布
+     */
+    public OpenLoopHarness replay(List<WorkloadOperation> operations, double speed, long timeout, TimeUnit unit) throws InterruptedException {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive but was " + speed);
+        }
+        long[] offsets = new long[operations.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (long) (operations.get(i).getOffsetNanos() / speed);
+        }
+        OpenLoopHarness harness = newHarness(operations);
+        harness.run(offsets, timeout, unit);
+        return harness;
+    }
+
+    /**
+     * 忽略录制的时间，按固定的到达速率回放
+     *
+     * @param operations   录制的操作
+     * @param opsPerSecond 每秒发出的操作数
+     * @param timeout      发出后等待完成的最长时间
+     * @param unit         timeout的单位
+     * @return 各阶段的延迟分布
+     */
+    public OpenLoopHarness replayAtRate(List<WorkloadOperation> operations, double opsPerSecond, long timeout, TimeUnit unit) throws InterruptedException {
+        OpenLoopHarness harness = newHarness(operations);
+        harness.run(opsPerSecond, operations.size(), timeout, unit);
+        return harness;
+    }
+
+    private OpenLoopHarness newHarness(List<WorkloadOperation> operations) {
+        return new OpenLoopHarness((sequence, timer) -> target.execute(operations.get((int) sequence), timer), maxWorkers);
+    }
+}
@@ -0,0 +1,72 @@
+package workload;
+
+import measure.OpenLoopHarness;
+import measure.PhaseTimer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class WorkloadReplayerTest {
+
+    private final LocalWorkloadTarget target = new LocalWorkloadTarget(1, 2);
+
+    @After
+    public void shutdown() {
+        target.shutdown();
+    }
+
+    //录制的操作保存后可以原样读回
+    @Test
+    public void savesAndLoadsOperations() throws Exception {
+        WorkloadRecorder recorder = new WorkloadRecorder();
+        recorder.record(WorkloadOperation.Type.INSTANTIATE, "init", new String[]{"a", "500", "b", "200"}, Arrays.asList("a", "b"),
+                Collections.singletonMap("method", "InstantiateProposalRequest".getBytes(UTF_8)));
+        recorder.record(WorkloadOperation.Type.INVOKE, "move", new String[]{"a", "b", "10"}, Arrays.asList("a", "b"), null);
+
+        Path file = Files.createTempFile("workload", ".jsonl");
+        try {
+            recorder.save(file);
+            List<WorkloadOperation> operations = WorkloadRecorder.load(file);
+
+            assertEquals(2, operations.size());
+            assertEquals(WorkloadOperation.Type.INSTANTIATE, operations.get(0).getType());
+            assertEquals(Arrays.asList("a", "500", "b", "200"), operations.get(0).getArgs());
+            assertArrayEquals("InstantiateProposalRequest".getBytes(UTF_8), operations.get(0).getTransientMap().get("method"));
+            assertEquals("move", operations.get(1).getFcn());
+            assertTrue(operations.get(1).getTransientMap().isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    //按固定速率回放，所有操作都执行并记录延迟
+    @Test
+    public void replaysAtFixedRate() throws Exception {
+        WorkloadRecorder recorder = new WorkloadRecorder();
+        recorder.record(WorkloadOperation.Type.INSTANTIATE, "init", new String[]{"a", "500", "b", "200"}, Arrays.asList("a", "b"), null);
+        for (int i = 0; i < 50; i++) {
+            recorder.record(WorkloadOperation.Type.INVOKE, "move", new String[]{"a", "b", "1"}, Arrays.asList("a", "b"), null);
+        }
+        List<WorkloadOperation> operations = recorder.getOperations();
+
+        //回放的操作并发执行，先单独执行init，之后的move互相之间与顺序无关
+        target.execute(operations.get(0), new PhaseTimer(System.nanoTime())).get();
+        OpenLoopHarness harness = new WorkloadReplayer(target, 2).replayAtRate(operations.subList(1, operations.size()), 1000, 10, TimeUnit.SECONDS);
+
+        assertEquals(50, harness.getTotal().getCount());
+        assertEquals(0, harness.getFailed().getCount());
+        assertTrue(harness.getTotal().getPercentile(50) >= 3000000);
+        assertTrue(harness.getEndorsement().getPercentile(50) >= 1000000);
+        assertEquals(Integer.valueOf(450), target.getBalance("a"));
+        assertEquals(Integer.valueOf(250), target.getBalance("b"));
+    }
+}
@@ -0,0 +1,18 @@
+package workload;
+
+import measure.PhaseTimer;
+
+import java.util.concurrent.CompletableFuture;
+
+//回放操作的目标网络
+public interface WorkloadTarget {
+
+    /**
+     * 执行一次操作
+     *
+     * @param operation 录制的操作
+     * @param timer     阶段计时，在背书完成和orderer接收时调用
+     * @return 操作完成（交易写入账本或查询返回）后完成
+     */
+    CompletableFuture<?> execute(WorkloadOperation operation, PhaseTimer timer) throws Exception;
+}
@@ -17,8 +17,10 @@ limitations under the License.
 package main
 
 import (
+	"encoding/json"
 	"fmt"
 	"strconv"
+	"strings"
 
 	"github.com/hyperledger/fabric/core/chaincode/shim"
 	pb "github.com/hyperledger/fabric/protos/peer"
@@ -110,13 +112,38 @@ func (t *SimpleChaincode) Invoke(stub shim.ChaincodeStubInterface) pb.Response {
 		return t.query(stub, args)
 	}
 
+	if function == "rangeQuery" {
+		// queries a page of entity states in a key range
+		return t.rangeQuery(stub, args)
+	}
+
+	if function == "credit" {
+		// adds a delta to an entity without reading its state
+		return t.credit(stub, args)
+	}
+
+	if function == "moveDelta" {
+		// moves X units from A to B as two deltas
+		return t.moveDelta(stub, args)
+	}
+
+	if function == "deltaQuery" {
+		// queries the base state and pending deltas of an entity
+		return t.deltaQuery(stub, args)
+	}
+
+	if function == "compact" {
+		// folds the pending deltas of an entity into its base state
+		return t.compact(stub, args)
+	}
+
 	if function == "move" {
 		// Deletes an entity from its state
 		return t.move(stub, args)
 	}
 
-	logger.Errorf("Unknown action, check the first argument, must be one of 'delete', 'query', or 'move'. But got: %v", args[0])
-	return shim.Error(fmt.Sprintf("Unknown action, check the first argument, must be one of 'delete', 'query', or 'move'. But got: %v", args[0]))
+	logger.Errorf("Unknown action, check the first argument, must be one of 'delete', 'query', 'rangeQuery', 'credit', 'moveDelta', 'deltaQuery', 'compact', or 'move'. But got: %v", args[0])
+	return shim.Error(fmt.Sprintf("Unknown action, check the first argument, must be one of 'delete', 'query', 'rangeQuery', 'credit', 'moveDelta', 'deltaQuery', 'compact', or 'move'. But got: %v", args[0]))
 }
 
 func (t *SimpleChaincode) move(stub shim.ChaincodeStubInterface, args []string) pb.Response {
@@ -221,7 +248,10 @@ func (t *SimpleChaincode) delete(stub shim.ChaincodeStubInterface, args []string
 	return shim.Success(nil)
 }
 
-// Query callback representing the query of a chaincode
+// Query callback representing the query of a chaincode.
+// It returns only the base state of the entity: deltas written by credit or
+// moveDelta and not yet folded in by compact are not included; use deltaQuery
+// for the full balance of such accounts.
 func (t *SimpleChaincode) query(stub shim.ChaincodeStubInterface, args []string) pb.Response {
 
 	var A string // Entities
@@ -250,6 +280,258 @@ func (t *SimpleChaincode) query(stub shim.ChaincodeStubInterface, args []string)
 	return shim.Success(Avalbytes)
 }
 
+// rangeRecord is one entity state returned by rangeQuery
+type rangeRecord struct {
+	Key   string `json:"key"`
+	Value string `json:"value"`
+}
+
+// rangePage is one page of entity states returned by rangeQuery
+type rangePage struct {
+	Records  []rangeRecord `json:"records"`
+	Count    int32         `json:"count"`
+	Bookmark string        `json:"bookmark"`
+}
+
+// rangeQuery returns a page of entity states with startKey <= key < endKey.
+// Like query, each value is the base state only; pending deltas live under
+// composite keys outside any simple key range and are not summed in.
+// args: startKey, endKey, pageSize, bookmark (empty for the first page)
+func (t *SimpleChaincode) rangeQuery(stub shim.ChaincodeStubInterface, args []string) pb.Response {
+	if len(args) != 4 {
+		return shim.Error("Incorrect number of arguments. Expecting startKey, endKey, pageSize and bookmark")
+	}
+
+	pageSize, err := strconv.ParseInt(args[2], 10, 32)
+	if err != nil || pageSize <= 0 {
+		return shim.Error("Expecting positive integer value for page size")
+	}
+
+	resultsIterator, metadata, err := stub.GetStateByRangeWithPagination(args[0], args[1], int32(pageSize), args[3])
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+	defer resultsIterator.Close()
+
+	page := rangePage{Records: make([]rangeRecord, 0, pageSize)}
+	for resultsIterator.HasNext() {
+		kv, err := resultsIterator.Next()
+		if err != nil {
+			return shim.Error(err.Error())
+		}
+		page.Records = append(page.Records, rangeRecord{Key: kv.Key, Value: string(kv.Value)})
+	}
+	page.Count = metadata.FetchedRecordsCount
+	page.Bookmark = metadata.Bookmark
+
+	pageBytes, err := json.Marshal(page)
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+
+	logger.Infof("Range query [%s, %s) returned %d records\n", args[0], args[1], page.Count)
+	return shim.Success(pageBytes)
+}
+
+// deltaIndex is the composite key object type of account deltas.
+// Each delta lives under its own key delta~<account>~<txid>~<n>, so transactions
+// that credit the same account write disjoint keys and never read them, which
+// keeps concurrent credits to a hot account free of MVCC read conflicts.
+const deltaIndex = "delta"
+
+// deltaEvent is one entry of the per-transaction deltas event
+type deltaEvent struct {
+	Account string `json:"account"`
+	Delta   int    `json:"delta"`
+}
+
+// putDeltas writes one delta key per entry and emits a single aggregated event
+func putDeltas(stub shim.ChaincodeStubInterface, deltas []deltaEvent) error {
+	txID := stub.GetTxID()
+	for i, d := range deltas {
+		key, err := stub.CreateCompositeKey(deltaIndex, []string{d.Account, txID, strconv.Itoa(i)})
+		if err != nil {
+			return err
+		}
+		if err := stub.PutState(key, []byte(strconv.Itoa(d.Delta))); err != nil {
+			return err
+		}
+	}
+
+	eventBytes, err := json.Marshal(deltas)
+	if err != nil {
+		return err
+	}
+	return stub.SetEvent("deltas", eventBytes)
+}
+
+// credit adds amount (which may be negative) to an entity as a delta.
+// args: account, amount
+func (t *SimpleChaincode) credit(stub shim.ChaincodeStubInterface, args []string) pb.Response {
+	if len(args) != 2 {
+		return shim.Error("Incorrect number of arguments. Expecting account and amount")
+	}
+
+	amount, err := strconv.Atoi(args[1])
+	if err != nil {
+		return shim.Error("Invalid transaction amount, expecting a integer value")
+	}
+
+	if err := putDeltas(stub, []deltaEvent{{Account: args[0], Delta: amount}}); err != nil {
+		return shim.Error(err.Error())
+	}
+	return shim.Success(nil)
+}
+
+// moveDelta moves X units from A to B without reading either balance.
+// Overdrafts are not checked here; they show up when the deltas are summed.
+// args: A, B, X
+func (t *SimpleChaincode) moveDelta(stub shim.ChaincodeStubInterface, args []string) pb.Response {
+	if len(args) != 3 {
+		return shim.Error("Incorrect number of arguments. Expecting 3, function followed by 2 names and 1 value")
+	}
+
+	X, err := strconv.Atoi(args[2])
+	if err != nil {
+		return shim.Error("Invalid transaction amount, expecting a integer value")
+	}
+
+	if err := putDeltas(stub, []deltaEvent{{Account: args[0], Delta: -X}, {Account: args[1], Delta: X}}); err != nil {
+		return shim.Error(err.Error())
+	}
+	return shim.Success(nil)
+}
+
+// deltaBalance is the base state and pending deltas of an entity
+type deltaBalance struct {
+	Account string `json:"account"`
+	Base    int    `json:"base"`
+	Deltas  []int  `json:"deltas"`
+}
+
+// readDeltas reads the base state and pending deltas of an entity
+func readDeltas(stub shim.ChaincodeStubInterface, account string) (deltaBalance, error) {
+	balance := deltaBalance{Account: account, Deltas: []int{}}
+
+	baseBytes, err := stub.GetState(account)
+	if err != nil {
+		return balance, err
+	}
+	if baseBytes != nil {
+		if balance.Base, err = strconv.Atoi(string(baseBytes)); err != nil {
+			return balance, err
+		}
+	}
+
+	resultsIterator, err := stub.GetStateByPartialCompositeKey(deltaIndex, []string{account})
+	if err != nil {
+		return balance, err
+	}
+	defer resultsIterator.Close()
+
+	for resultsIterator.HasNext() {
+		kv, err := resultsIterator.Next()
+		if err != nil {
+			return balance, err
+		}
+		delta, err := strconv.Atoi(string(kv.Value))
+		if err != nil {
+			return balance, err
+		}
+		balance.Deltas = append(balance.Deltas, delta)
+	}
+	return balance, nil
+}
+
+// deltaQuery returns the base state and the pending deltas of an entity;
+// the client sums them to get the balance.
+// args: account
+func (t *SimpleChaincode) deltaQuery(stub shim.ChaincodeStubInterface, args []string) pb.Response {
+	if len(args) != 1 {
+		return shim.Error("Incorrect number of arguments. Expecting name of the person to query")
+	}
+
+	balance, err := readDeltas(stub, args[0])
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+
+	balanceBytes, err := json.Marshal(balance)
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+	return shim.Success(balanceBytes)
+}
+
+// compactResult is the base state after compact and the number of deltas folded in
+type compactResult struct {
+	Account string `json:"account"`
+	Base    int    `json:"base"`
+	Folded  int    `json:"folded"`
+}
+
+// compact folds the given deltas of an entity into its base state.
+// The client names the deltas by the txid and index seen in the deltas events
+// and each one is read with GetState, so credits committed concurrently write
+// keys outside the read set and cannot invalidate the compaction. Deltas that
+// no longer exist (already folded) are skipped and not counted.
+// args: account, txid~index...
+func (t *SimpleChaincode) compact(stub shim.ChaincodeStubInterface, args []string) pb.Response {
+	if len(args) < 2 {
+		return shim.Error("Incorrect number of arguments. Expecting name of the person followed by the deltas to compact")
+	}
+
+	account := args[0]
+	baseBytes, err := stub.GetState(account)
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+	result := compactResult{Account: account}
+	if baseBytes != nil {
+		if result.Base, err = strconv.Atoi(string(baseBytes)); err != nil {
+			return shim.Error(err.Error())
+		}
+	}
+
+	for _, id := range args[1:] {
+		parts := strings.Split(id, "~")
+		if len(parts) != 2 {
+			return shim.Error(fmt.Sprintf("Invalid delta %s, expecting txid~index", id))
+		}
+		key, err := stub.CreateCompositeKey(deltaIndex, []string{account, parts[0], parts[1]})
+		if err != nil {
+			return shim.Error(err.Error())
+		}
+		deltaBytes, err := stub.GetState(key)
+		if err != nil {
+			return shim.Error(err.Error())
+		}
+		if deltaBytes == nil {
+			continue
+		}
+		delta, err := strconv.Atoi(string(deltaBytes))
+		if err != nil {
+			return shim.Error(err.Error())
+		}
+		if err := stub.DelState(key); err != nil {
+			return shim.Error(err.Error())
+		}
+		result.Base += delta
+		result.Folded++
+	}
+
+	if err := stub.PutState(account, []byte(strconv.Itoa(result.Base))); err != nil {
+		return shim.Error(err.Error())
+	}
+
+	resultBytes, err := json.Marshal(result)
+	if err != nil {
+		return shim.Error(err.Error())
+	}
+	logger.Infof("Compacted %d deltas of %s, balance = %d\n", result.Folded, account, result.Base)
+	return shim.Success(resultBytes)
+}
+
 func main() {
 	err := shim.Start(new(SimpleChaincode))
 	if err != nil {